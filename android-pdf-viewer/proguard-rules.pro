@@ -0,0 +1,10 @@
+# Rules applied to applications using the library
+
+# renderer.PdfiumPages closes single pages through private members of Pdfium
+-keepclassmembers class com.shockwave.pdfium.PdfDocument {
+    java.util.Map mNativePagesPtr;
+}
+-keepclassmembers class com.shockwave.pdfium.PdfiumCore {
+    private native void nativeClosePage(long);
+    private static java.lang.Object lock;
+}
@@ -21,6 +21,7 @@ import android.animation.AnimatorListenerAdapter;
 import android.animation.ValueAnimator;
 import android.animation.ValueAnimator.AnimatorUpdateListener;
 import android.graphics.PointF;
+import android.os.Build;
 import android.view.animation.DecelerateInterpolator;
 import android.widget.OverScroller;
 
@@ -83,14 +84,17 @@ class AnimationManager {
         stopAll();
         flinging = true;
         scroller.fling(startX, startY, velocityX, velocityY, minX, maxX, minY, maxY);
+        pdfView.setScrollVelocity(-(pdfView.isSwipeVertical() ? velocityY : velocityX));
     }
 
     void computeFling() {
         if (scroller.computeScrollOffset()) {
             pdfView.moveTo(scroller.getCurrX(), scroller.getCurrY());
-            pdfView.loadPageByOffset();
+            updateFlingVelocity();
+            pdfView.loadPageByOffsetDuringAnimation();
         } else if(flinging) { // fling finished
             flinging = false;
+            pdfView.setScrollVelocity(0);
             pdfView.loadPages();
             hideHandle();
         }
@@ -105,17 +109,53 @@ class AnimationManager {
     }
 
     public void stopFling() {
+        if (flinging) {
+            pdfView.setScrollVelocity(0);
+        }
         flinging = false;
         scroller.forceFinished(true);
     }
 
+    boolean isFlinging() {
+        return flinging;
+    }
+
+    int getFlingFinalX() {
+        return scroller.getFinalX();
+    }
+
+    int getFlingFinalY() {
+        return scroller.getFinalY();
+    }
+
+    /**
+     * Pass current velocity of the fling to the view, the scroller knows only its magnitude.
+     * Before API 14 the scroller doesn't report it, so the view keeps the velocity the fling started with.
+     */
+    private void updateFlingVelocity() {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.ICE_CREAM_SANDWICH) {
+            return;
+        }
+        float velocity = scroller.getCurrVelocity();
+        switch (pdfView.getScrollDir()) {
+            case END:
+                pdfView.setScrollVelocity(velocity);
+                break;
+            case START:
+                pdfView.setScrollVelocity(-velocity);
+                break;
+            default:
+                pdfView.setScrollVelocity(0);
+        }
+    }
+
     class XAnimation extends AnimatorListenerAdapter implements AnimatorUpdateListener {
 
         @Override
         public void onAnimationUpdate(ValueAnimator animation) {
             float offset = (Float) animation.getAnimatedValue();
             pdfView.moveTo(offset, pdfView.getCurrentYOffset());
-            pdfView.loadPageByOffset();
+            pdfView.loadPageByOffsetDuringAnimation();
         }
 
         @Override
@@ -135,7 +175,7 @@ class AnimationManager {
         public void onAnimationUpdate(ValueAnimator animation) {
             float offset = (Float) animation.getAnimatedValue();
             pdfView.moveTo(pdfView.getCurrentXOffset(), offset);
-            pdfView.loadPageByOffset();
+            pdfView.loadPageByOffsetDuringAnimation();
         }
 
         @Override
@@ -0,0 +1,222 @@
+/**
+ * Copyright 2017 Bartosz Schiller
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.barteksc.pdfviewer;
+
+import android.graphics.Bitmap;
+import android.graphics.Color;
+
+import com.github.barteksc.pdfviewer.util.Util;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps bitmaps removed from the {@link CacheManager}, so that {@link RenderingHandler}
+ * can render new parts into them instead of allocating new bitmaps.
+ * <p>
+ * Bitmaps are grouped by width, height and config. There are only a few different part sizes
+ * (full parts, parts at the right and bottom edges of a page and thumbnails), so groups
+ * are kept in a list instead of a map, which avoids allocating keys.
+ */
+class BitmapPool {
+
+    private final List<Group> groups = new ArrayList<>();
+
+    /**
+     * Maximum size of pooled bitmaps in bytes
+     */
+    private long maxSize;
+
+    /**
+     * Bytes used by pooled bitmaps
+     */
+    private long size = 0;
+
+    private int hitCount = 0;
+
+    private int missCount = 0;
+
+    /**
+     * Incremented on every access, used to find the least recently used group
+     */
+    private long accessCounter = 0;
+
+    BitmapPool(long maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Get a bitmap of given size and config, reused from the pool if possible.
+     * Reused bitmaps are cleared, so they are the same as newly created ones.
+     *
+     * @throws IllegalArgumentException if width or height is not positive
+     */
+    Bitmap get(int width, int height, Bitmap.Config config) {
+        Bitmap bitmap = null;
+        synchronized (this) {
+            Group group = findGroup(width, height, config);
+            if (group != null && !group.bitmaps.isEmpty()) {
+                bitmap = group.bitmaps.poll();
+                group.lastAccess = ++accessCounter;
+                size -= group.byteCount;
+                if (group.bitmaps.isEmpty()) {
+                    groups.remove(group);
+                }
+                hitCount++;
+            } else {
+                missCount++;
+            }
+        }
+        if (bitmap != null) {
+            bitmap.eraseColor(Color.TRANSPARENT);
+            return bitmap;
+        }
+        return Bitmap.createBitmap(width, height, config);
+    }
+
+    /**
+     * Return bitmap to the pool. If it doesn't fit, bitmaps from the least recently used groups
+     * are recycled, and when it's still too big, given bitmap is recycled.
+     */
+    void put(Bitmap bitmap) {
+        if (bitmap == null || bitmap.isRecycled()) {
+            return;
+        }
+        if (!bitmap.isMutable()) {
+            bitmap.recycle();
+            return;
+        }
+        synchronized (this) {
+            long byteCount = Util.getByteCount(bitmap);
+            Group group = findGroup(bitmap.getWidth(), bitmap.getHeight(), bitmap.getConfig());
+            trimToSize(maxSize - byteCount, group);
+            if (size + byteCount > maxSize) {
+                bitmap.recycle();
+                return;
+            }
+            if (group == null) {
+                group = new Group(bitmap.getWidth(), bitmap.getHeight(), bitmap.getConfig(), byteCount);
+                groups.add(group);
+            }
+            group.bitmaps.offer(bitmap);
+            group.lastAccess = ++accessCounter;
+            size += byteCount;
+        }
+    }
+
+    /**
+     * Recycle bitmaps until pool size is not bigger than given size
+     *
+     * @param keep group which should be trimmed last, may be null
+     */
+    private void trimToSize(long targetSize, Group keep) {
+        while (size > targetSize) {
+            Group lru = null;
+            for (int i = 0; i < groups.size(); i++) {
+                Group group = groups.get(i);
+                if (group != keep && !group.bitmaps.isEmpty() && (lru == null || group.lastAccess < lru.lastAccess)) {
+                    lru = group;
+                }
+            }
+            if (lru == null) {
+                if (keep == null || keep.bitmaps.isEmpty()) {
+                    return;
+                }
+                lru = keep;
+            }
+            lru.bitmaps.poll().recycle();
+            size -= lru.byteCount;
+            if (lru.bitmaps.isEmpty() && lru != keep) {
+                groups.remove(lru);
+            }
+        }
+    }
+
+    private Group findGroup(int width, int height, Bitmap.Config config) {
+        for (int i = 0; i < groups.size(); i++) {
+            Group group = groups.get(i);
+            if (group.width == width && group.height == height && group.config == config) {
+                return group;
+            }
+        }
+        return null;
+    }
+
+    synchronized void setMaxSize(long maxSize) {
+        this.maxSize = maxSize;
+        trimToSize(maxSize, null);
+    }
+
+    synchronized long getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * @return bytes used by pooled bitmaps
+     */
+    synchronized long getSize() {
+        return size;
+    }
+
+    /**
+     * @return number of bitmaps reused from the pool
+     */
+    synchronized int getHitCount() {
+        return hitCount;
+    }
+
+    /**
+     * @return number of bitmaps which had to be created because the pool had none of requested size
+     */
+    synchronized int getMissCount() {
+        return missCount;
+    }
+
+    /**
+     * Recycle all pooled bitmaps
+     */
+    synchronized void clear() {
+        trimToSize(0, null);
+        groups.clear();
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "BitmapPool{size=" + size + ", maxSize=" + maxSize
+                + ", hits=" + hitCount + ", misses=" + missCount + ", groups=" + groups.size() + "}";
+    }
+
+    private static class Group {
+
+        final int width, height;
+
+        final Bitmap.Config config;
+
+        final long byteCount;
+
+        final ArrayDeque<Bitmap> bitmaps = new ArrayDeque<>();
+
+        long lastAccess;
+
+        Group(int width, int height, Bitmap.Config config, long byteCount) {
+            this.width = width;
+            this.height = height;
+            this.config = config;
+            this.byteCount = byteCount;
+        }
+    }
+}
@@ -16,43 +16,134 @@
 package com.github.barteksc.pdfviewer;
 
 import android.graphics.RectF;
-import android.support.annotation.Nullable;
 
+import com.github.barteksc.pdfviewer.listener.OnRenderMetricsListener;
 import com.github.barteksc.pdfviewer.model.PagePart;
+import com.github.barteksc.pdfviewer.model.PagePartKey;
+import com.github.barteksc.pdfviewer.util.Util;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
-import java.util.PriorityQueue;
-
-import static com.github.barteksc.pdfviewer.util.Constants.Cache.CACHE_SIZE;
-import static com.github.barteksc.pdfviewer.util.Constants.Cache.THUMBNAILS_CACHE_SIZE;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
 
+/**
+ * Parts are kept in two sets ordered by cache order, so the lowest order part can be removed
+ * and a part can be moved between the sets in O(log n). Passive parts rendered at higher zoom levels
+ * are removed first, so coarse parts, which take less memory for the same area, stay available for drawing
+ * while parts for the current zoom are rendered. Every part is also indexed by its
+ * {@link PagePartKey}, so checking if a part is already cached doesn't need to iterate over the sets.
+ */
 class CacheManager {
 
-    private final PriorityQueue<PagePart> passiveCache;
+    private final TreeSet<PagePart> passiveCache;
 
-    private final PriorityQueue<PagePart> activeCache;
+    private final TreeSet<PagePart> activeCache;
 
+    /**
+     * Parts from both {@link #passiveCache} and {@link #activeCache} by their keys
+     */
+    private final Map<PagePartKey, PagePart> partsIndex = new HashMap<>();
+
+    /**
+     * Thumbnails in the order they were cached, they share the byte budget with parts
+     */
     private final List<PagePart> thumbnails;
 
+    /**
+     * Parts for drawing, ordered by page and then by zoom level, so finer parts are drawn over coarse ones.
+     * Parts of the same level are ordered as parts from {@link #passiveCache}
+     * followed by parts from {@link #activeCache}, so the current ones are drawn on top.
+     * Rebuilt only after the sets change, so drawing doesn't copy them on every frame,
+     * and parts of visible pages are found by binary search
+     */
+    private final List<PagePart> drawableParts = new ArrayList<>();
+
+    private final Comparator<PagePart> drawingComparator = new Comparator<PagePart>() {
+        @Override
+        public int compare(PagePart part1, PagePart part2) {
+            int page1 = part1.getUserPage(), page2 = part2.getUserPage();
+            if (page1 != page2) {
+                return page1 < page2 ? -1 : 1;
+            }
+            // finer parts on top
+            return Float.compare(part1.getPageRenderWidth(), part2.getPageRenderWidth());
+        }
+    };
+
+    private boolean drawablePartsChanged = false;
+
+    private final Set<PagePartKey> thumbnailsIndex = new HashSet<>();
+
     private final Object passiveActiveLock = new Object();
 
     private final PagePartComparator comparator = new PagePartComparator();
 
-    public CacheManager() {
-        activeCache = new PriorityQueue<>(CACHE_SIZE, comparator);
-        passiveCache = new PriorityQueue<>(CACHE_SIZE, comparator);
+    private final PassivePagePartComparator passiveComparator = new PassivePagePartComparator();
+
+    /**
+     * Maximum size of the cache in bytes
+     */
+    private long maxSize;
+
+    /**
+     * Bytes used by all cached parts and thumbnails
+     */
+    private long size = 0;
+
+    /**
+     * The highest value {@link #size} has reached since the last {@link #resetPeakSize()}
+     */
+    private long peakSize = 0;
+
+    /**
+     * Bitmaps of removed parts are returned to this pool
+     */
+    private final BitmapPool bitmapPool;
+
+    /**
+     * Counters are guarded by this, like {@link #size}
+     */
+    private int hitCount = 0;
+
+    private int missCount = 0;
+
+    private int evictionCount = 0;
+
+    private OnRenderMetricsListener metricsListener;
+
+    public CacheManager(long maxSize, BitmapPool bitmapPool) {
+        this.maxSize = maxSize;
+        this.bitmapPool = bitmapPool;
+        activeCache = new TreeSet<>(comparator);
+        passiveCache = new TreeSet<>(passiveComparator);
         thumbnails = new ArrayList<>();
     }
 
     public void cachePart(PagePart part) {
         synchronized (passiveActiveLock) {
+            // Part may have been rendered again, if it was requested before previous one was cached
+            PagePart cached = partsIndex.get(part.getKey());
+            if (cached != null) {
+                if (!passiveCache.remove(cached)) {
+                    activeCache.remove(cached);
+                }
+                removePart(cached);
+            }
+
             // If cache too big, remove and recycle
-            makeAFreeSpace();
+            makeAFreeSpace(Util.getByteCount(part.getRenderedBitmap()));
 
             // Then add part
-            activeCache.offer(part);
+            activeCache.add(part);
+            partsIndex.put(part.getKey(), part);
+            drawablePartsChanged = true;
+            onAdded(part);
         }
     }
 
@@ -60,76 +151,202 @@ class CacheManager {
         synchronized (passiveActiveLock) {
             passiveCache.addAll(activeCache);
             activeCache.clear();
+            drawablePartsChanged = true;
         }
     }
 
-    private void makeAFreeSpace() {
+    /**
+     * Remove parts until there is enough space for a new part of given size.
+     * Passive parts are removed first, then the oldest thumbnails and then active parts.
+     * Their bitmaps go to the {@link BitmapPool}.
+     */
+    private void makeAFreeSpace(long neededSize) {
         synchronized (passiveActiveLock) {
-            while ((activeCache.size() + passiveCache.size()) >= CACHE_SIZE &&
-                    !passiveCache.isEmpty()) {
-                PagePart part = passiveCache.poll();
-                part.getRenderedBitmap().recycle();
+            while (getSize() + neededSize > getMaxSize() && !passiveCache.isEmpty()) {
+                evict(passiveCache.pollFirst());
             }
 
-            while ((activeCache.size() + passiveCache.size()) >= CACHE_SIZE &&
-                    !activeCache.isEmpty()) {
-                activeCache.poll().getRenderedBitmap().recycle();
+            synchronized (thumbnails) {
+                while (getSize() + neededSize > getMaxSize() && !thumbnails.isEmpty()) {
+                    PagePart removed = thumbnails.remove(0);
+                    thumbnailsIndex.remove(removed.getKey());
+                    remove(removed);
+                    onEvicted(removed);
+                }
+            }
+
+            while (getSize() + neededSize > getMaxSize() && !activeCache.isEmpty()) {
+                evict(activeCache.pollFirst());
             }
         }
     }
 
     public void cacheThumbnail(PagePart part) {
-        synchronized (thumbnails) {
-            // If cache too big, remove and recycle
-            if (thumbnails.size() >= THUMBNAILS_CACHE_SIZE) {
-                thumbnails.remove(0).getRenderedBitmap().recycle();
+        // parts lock first, like in makeAFreeSpace
+        synchronized (passiveActiveLock) {
+            synchronized (thumbnails) {
+                // Thumbnail may have been rendered again, if it was requested before previous one was cached
+                if (thumbnailsIndex.remove(part.getKey())) {
+                    for (int i = 0; i < thumbnails.size(); i++) {
+                        PagePart cached = thumbnails.get(i);
+                        if (cached.getKey().equals(part.getKey())) {
+                            thumbnails.remove(i);
+                            remove(cached);
+                            break;
+                        }
+                    }
+                }
+
+                // If cache too big, remove and recycle
+                makeAFreeSpace(Util.getByteCount(part.getRenderedBitmap()));
+
+                // Then add thumbnail
+                thumbnails.add(part);
+                thumbnailsIndex.add(part.getKey());
+                onAdded(part);
             }
+        }
+    }
 
-            // Then add thumbnail
-            thumbnails.add(part);
+    private synchronized void onAdded(PagePart part) {
+        size += Util.getByteCount(part.getRenderedBitmap());
+        if (size > peakSize) {
+            peakSize = size;
         }
+    }
 
+    private void evict(PagePart part) {
+        removePart(part);
+        onEvicted(part);
     }
 
-    public boolean upPartIfContained(int userPage, int page, float width, float height, RectF pageRelativeBounds, int toOrder) {
-        PagePart fakePart = new PagePart(userPage, page, null, width, height, pageRelativeBounds, false, 0);
+    private void onEvicted(PagePart part) {
+        synchronized (this) {
+            evictionCount++;
+        }
+        if (metricsListener != null) {
+            metricsListener.onCacheEviction(part.getPage(), part.isThumbnail());
+        }
+    }
 
-        PagePart found;
-        synchronized (passiveActiveLock) {
-            if ((found = find(passiveCache, fakePart)) != null) {
-                passiveCache.remove(found);
-                found.setCacheOrder(toOrder);
-                activeCache.offer(found);
-                return true;
+    private void onLookup(int page, boolean thumbnail, boolean found) {
+        synchronized (this) {
+            if (found) {
+                hitCount++;
+            } else {
+                missCount++;
             }
+        }
+        if (metricsListener != null) {
+            if (found) {
+                metricsListener.onCacheHit(page, thumbnail);
+            } else {
+                metricsListener.onCacheMiss(page, thumbnail);
+            }
+        }
+    }
 
-            return find(activeCache, fakePart) != null;
+    private void removePart(PagePart part) {
+        partsIndex.remove(part.getKey());
+        drawablePartsChanged = true;
+        remove(part);
+    }
+
+    private void remove(PagePart part) {
+        synchronized (this) {
+            size -= Util.getByteCount(part.getRenderedBitmap());
         }
+        bitmapPool.put(part.getRenderedBitmap());
     }
 
     /**
-     * Return true if already contains the described PagePart
+     * @return bytes currently used by cached parts and thumbnails
      */
-    public boolean containsThumbnail(int userPage, int page, float width, float height, RectF pageRelativeBounds) {
-        PagePart fakePart = new PagePart(userPage, page, null, width, height, pageRelativeBounds, true, 0);
-        synchronized (thumbnails) {
-            for (PagePart part : thumbnails) {
-                if (part.equals(fakePart)) {
-                    return true;
-                }
+    public synchronized long getSize() {
+        return size;
+    }
+
+    /**
+     * @return the highest number of bytes used by the cache, since creation or last {@link #resetPeakSize()}
+     */
+    public synchronized long getPeakSize() {
+        return peakSize;
+    }
+
+    public synchronized void resetPeakSize() {
+        peakSize = size;
+    }
+
+    public synchronized long getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Change maximum size of the cache, parts are removed if they don't fit anymore
+     */
+    public void setMaxSize(long maxSize) {
+        synchronized (passiveActiveLock) {
+            synchronized (this) {
+                this.maxSize = maxSize;
             }
-            return false;
+            makeAFreeSpace(0);
         }
     }
 
-    @Nullable
-    private static PagePart find(PriorityQueue<PagePart> vector, PagePart fakePart) {
-        for (PagePart part : vector) {
-            if (part.equals(fakePart)) {
-                return part;
+    /**
+     * @return number of requested parts and thumbnails found in the cache
+     */
+    public synchronized int getHitCount() {
+        return hitCount;
+    }
+
+    /**
+     * @return number of requested parts and thumbnails which were not cached
+     */
+    public synchronized int getMissCount() {
+        return missCount;
+    }
+
+    /**
+     * @return number of parts and thumbnails removed to make space for new ones
+     */
+    public synchronized int getEvictionCount() {
+        return evictionCount;
+    }
+
+    void setMetricsListener(OnRenderMetricsListener metricsListener) {
+        this.metricsListener = metricsListener;
+    }
+
+    public boolean upPartIfContained(int userPage, int page, float width, float height, RectF pageRelativeBounds, int toOrder) {
+        PagePartKey key = new PagePartKey(userPage, page, width, height, pageRelativeBounds, false);
+
+        synchronized (passiveActiveLock) {
+            PagePart found = partsIndex.get(key);
+            onLookup(page, false, found != null);
+            if (found == null) {
+                return false;
+            }
+            if (passiveCache.remove(found)) {
+                found.setCacheOrder(toOrder);
+                activeCache.add(found);
+                drawablePartsChanged = true;
             }
+            return true;
+        }
+    }
+
+    /**
+     * Return true if already contains the described PagePart
+     */
+    public boolean containsThumbnail(int userPage, int page, float width, float height, RectF pageRelativeBounds) {
+        PagePartKey key = new PagePartKey(userPage, page, width, height, pageRelativeBounds, true);
+        boolean found;
+        synchronized (thumbnails) {
+            found = thumbnailsIndex.contains(key);
         }
-        return null;
+        onLookup(page, true, found);
+        return found;
     }
 
     public List<PagePart> getPageParts() {
@@ -140,6 +357,44 @@ class CacheManager {
         }
     }
 
+    /**
+     * Get parts in drawing order without copying them. The returned list must be used only
+     * on the UI thread, which is the only one changing the cache.
+     */
+    List<PagePart> getDrawableParts() {
+        synchronized (passiveActiveLock) {
+            if (drawablePartsChanged) {
+                drawableParts.clear();
+                for (PagePart part : passiveCache) {
+                    drawableParts.add(part);
+                }
+                for (PagePart part : activeCache) {
+                    drawableParts.add(part);
+                }
+                // stable sort, so the order within a level is kept
+                Collections.sort(drawableParts, drawingComparator);
+                drawablePartsChanged = false;
+            }
+            return drawableParts;
+        }
+    }
+
+    /**
+     * @return index of the first part of given or later page in the list returned by {@link #getDrawableParts()}
+     */
+    static int indexOfPage(List<PagePart> parts, int userPage) {
+        int low = 0, high = parts.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (parts.get(mid).getUserPage() < userPage) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
     public List<PagePart> getThumbnails() {
         synchronized (thumbnails) {
             return thumbnails;
@@ -149,30 +404,52 @@ class CacheManager {
     public void recycle() {
         synchronized (passiveActiveLock) {
             for (PagePart part : passiveCache) {
-                part.getRenderedBitmap().recycle();
+                remove(part);
             }
             passiveCache.clear();
             for (PagePart part : activeCache) {
-                part.getRenderedBitmap().recycle();
+                remove(part);
             }
             activeCache.clear();
+            partsIndex.clear();
+            drawableParts.clear();
+            drawablePartsChanged = false;
         }
         synchronized (thumbnails) {
             for (PagePart part : thumbnails) {
-                part.getRenderedBitmap().recycle();
+                remove(part);
             }
             thumbnails.clear();
+            thumbnailsIndex.clear();
         }
     }
 
+    /**
+     * Orders parts by cache order. Parts with the same order are ordered by their keys,
+     * because sets would treat them as duplicates otherwise.
+     */
     class PagePartComparator implements Comparator<PagePart> {
         @Override
         public int compare(PagePart part1, PagePart part2) {
             if (part1.getCacheOrder() == part2.getCacheOrder()) {
-                return 0;
+                return part1.getKey().compareTo(part2.getKey());
             }
             return part1.getCacheOrder() > part2.getCacheOrder() ? 1 : -1;
         }
     }
 
+    /**
+     * Orders parts from the highest zoom level, then like {@link PagePartComparator}
+     */
+    class PassivePagePartComparator extends PagePartComparator {
+        @Override
+        public int compare(PagePart part1, PagePart part2) {
+            int result = Float.compare(part2.getPageRenderWidth(), part1.getPageRenderWidth());
+            if (result != 0) {
+                return result;
+            }
+            return super.compare(part1, part2);
+        }
+    }
+
 }
@@ -0,0 +1,491 @@
+/**
+ * Copyright 2017 Bartosz Schiller
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.barteksc.pdfviewer;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.util.Log;
+
+import com.github.barteksc.pdfviewer.model.PagePartKey;
+import com.github.barteksc.pdfviewer.util.Util;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Second level cache of rendered parts, kept in files in the cache directory, so that parts survive
+ * {@link PDFView#recycle()} and the application process. One instance is shared by all views.
+ * <p>
+ * Files contain raw pixels of bitmaps, so reading a part is a single copy into a pooled bitmap,
+ * without decoding. Parts are identified by document fingerprint, page, size, bounds, bitmap config
+ * and annotation rendering, and the least recently used files are deleted when the cache
+ * is bigger than its maximum size.
+ * <p>
+ * Files are read on the rendering threads. Pixels of new parts are copied into one of
+ * {@link #MAX_PENDING_WRITES} buffers and written by a single background thread. When all buffers are waiting,
+ * other parts are skipped, but required ones, the parts shown on the screen, get a buffer of their own,
+ * so reopening a document shows its first screen without rendering. Recency of read files is kept in memory and saved as modification
+ * times by the same thread, so the order survives the process without touching files on every read.
+ */
+class DiskCache {
+
+    private static final String TAG = DiskCache.class.getSimpleName();
+
+    private static final String DIRECTORY = "pdfview-parts";
+
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    /**
+     * Maximum number of parts waiting to be written
+     */
+    private static final int MAX_PENDING_WRITES = 4;
+
+    private static DiskCache instance;
+
+    private final File directory;
+
+    /**
+     * File names and sizes in access order, the least recently used first
+     */
+    private final LinkedHashMap<String, Long> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    private long size = 0;
+
+    private long maxSize = 0;
+
+    private boolean initialized = false;
+
+    private int hitCount = 0;
+
+    private int missCount = 0;
+
+    /**
+     * Buffer for pixels of a single part, one per rendering thread
+     */
+    private final ThreadLocal<ByteBuffer> buffers = new ThreadLocal<>();
+
+    /**
+     * Writes files and saves recency, so rendering threads don't wait for the disk
+     */
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "PDF disk cache");
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        }
+    });
+
+    /**
+     * Buffers of pixels not waiting for the writer, guarded by this
+     */
+    private final ArrayDeque<ByteBuffer> freeWriteBuffers = new ArrayDeque<>();
+
+    /**
+     * Number of buffers allocated for writing, guarded by this
+     */
+    private int writeBufferCount = 0;
+
+    /**
+     * Names of files waiting for the writer, guarded by this
+     */
+    private final Set<String> pendingWrites = new HashSet<>();
+
+    /**
+     * Names of files read since their modification time was last saved, the least recently read first.
+     * Guarded by this.
+     */
+    private final LinkedHashSet<String> touchedFiles = new LinkedHashSet<>();
+
+    private boolean touchedFilesFlushPending = false;
+
+    static synchronized DiskCache getInstance(Context context) {
+        if (instance == null) {
+            instance = new DiskCache(new File(context.getCacheDir(), DIRECTORY));
+        }
+        return instance;
+    }
+
+    /**
+     * @param directory directory of the files, the shared instance uses one in the cache directory
+     */
+    DiskCache(File directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * @return key of a part, or null if the document has no fingerprint
+     */
+    static String createKey(String fingerprint, PagePartKey key, Bitmap.Config config, boolean annotationRendering) {
+        if (fingerprint == null) {
+            return null;
+        }
+        return fingerprint + "/" + key.getPage() + "/" + key.getWidth() + "x" + key.getHeight()
+                + "/" + Arrays.toString(key.getQuantizedBounds()) + "/" + config + "/" + annotationRendering;
+    }
+
+    /**
+     * Read files already in the directory, must be called when holding the lock
+     */
+    private void initialize() {
+        if (initialized) {
+            return;
+        }
+        initialized = true;
+        if (!directory.exists() && !directory.mkdirs()) {
+            Log.e(TAG, "Cannot create " + directory);
+            return;
+        }
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return;
+        }
+        Arrays.sort(files, new Comparator<File>() {
+            @Override
+            public int compare(File file1, File file2) {
+                long modified1 = file1.lastModified(), modified2 = file2.lastModified();
+                return modified1 < modified2 ? -1 : (modified1 == modified2 ? 0 : 1);
+            }
+        });
+        for (File file : files) {
+            if (file.getName().endsWith(TEMP_SUFFIX)) {
+                // left by a process killed while writing
+                file.delete();
+                continue;
+            }
+            entries.put(file.getName(), file.length());
+            size += file.length();
+        }
+        trimToSize(maxSize);
+    }
+
+    /**
+     * Read a part into a bitmap from the pool
+     *
+     * @return bitmap or null if the part isn't cached
+     */
+    Bitmap get(String key, int width, int height, Bitmap.Config config, BitmapPool bitmapPool) {
+        String name = Util.md5(key.getBytes());
+        long byteCount = Util.getByteCount(width, height, config);
+        synchronized (this) {
+            initialize();
+            Long length = entries.get(name);
+            if (length == null || length != byteCount) {
+                missCount++;
+                return null;
+            }
+        }
+
+        File file = new File(directory, name);
+        FileInputStream inputStream = null;
+        Bitmap bitmap = null;
+        try {
+            inputStream = new FileInputStream(file);
+            ByteBuffer buffer = getBuffer(byteCount);
+            FileChannel channel = inputStream.getChannel();
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer) < 0) {
+                    throw new IOException("Unexpected end of " + file);
+                }
+            }
+            buffer.rewind();
+            bitmap = bitmapPool.get(width, height, config);
+            bitmap.copyPixelsFromBuffer(buffer);
+            synchronized (this) {
+                hitCount++;
+                touch(name);
+            }
+            return bitmap;
+        } catch (IOException | RuntimeException e) {
+            Log.w(TAG, "Cannot read " + file, e);
+            if (bitmap != null) {
+                bitmapPool.put(bitmap);
+            }
+            synchronized (this) {
+                missCount++;
+                remove(name);
+            }
+            return null;
+        } finally {
+            closeQuietly(inputStream);
+        }
+    }
+
+    /**
+     * Remember that the file was read, its modification time is saved later by the writer.
+     * Must be called when holding the lock.
+     */
+    private void touch(String name) {
+        touchedFiles.remove(name);
+        touchedFiles.add(name);
+        if (touchedFilesFlushPending) {
+            return;
+        }
+        touchedFilesFlushPending = true;
+        writer.execute(new Runnable() {
+            @Override
+            public void run() {
+                saveTouchedFiles();
+            }
+        });
+    }
+
+    /**
+     * Set modification times of read files in the order they were read, called on the writer thread
+     */
+    private void saveTouchedFiles() {
+        List<String> names;
+        synchronized (this) {
+            names = new ArrayList<>(touchedFiles);
+            touchedFiles.clear();
+            touchedFilesFlushPending = false;
+        }
+        long time = System.currentTimeMillis() - names.size();
+        for (String name : names) {
+            // files may have been removed in the meantime
+            new File(directory, name).setLastModified(time++);
+        }
+    }
+
+    /**
+     * Write a part which may be skipped, see {@link #put(String, Bitmap, boolean)}
+     */
+    void put(String key, Bitmap bitmap) {
+        put(key, bitmap, false);
+    }
+
+    /**
+     * Copy pixels of the bitmap and write them in the background, the file is renamed when it's complete.
+     *
+     * @param required false if the part is skipped when too many parts are waiting to be written
+     */
+    void put(String key, Bitmap bitmap, boolean required) {
+        final String name = Util.md5(key.getBytes());
+        final long byteCount = Util.getByteCount(bitmap);
+        final ByteBuffer buffer;
+        synchronized (this) {
+            initialize();
+            if (maxSize <= 0 || entries.containsKey(name) || pendingWrites.contains(name)) {
+                return;
+            }
+            buffer = takeWriteBuffer(byteCount, required);
+            if (buffer == null) {
+                return;
+            }
+            pendingWrites.add(name);
+        }
+
+        // the bitmap may be reused once the part leaves the memory cache, so pixels are copied now
+        bitmap.copyPixelsToBuffer(buffer);
+        buffer.rewind();
+        writer.execute(new Runnable() {
+            @Override
+            public void run() {
+                write(name, buffer, byteCount);
+            }
+        });
+    }
+
+    /**
+     * @return buffer for pixels of a part waiting to be written, or null if all buffers are waiting
+     * and the part isn't required. Buffers over the limit are not kept after writing.
+     * Must be called when holding the lock.
+     */
+    private ByteBuffer takeWriteBuffer(long byteCount, boolean required) {
+        ByteBuffer buffer = freeWriteBuffers.poll();
+        if (buffer == null) {
+            if (writeBufferCount < MAX_PENDING_WRITES) {
+                writeBufferCount++;
+            } else if (!required) {
+                return null;
+            }
+        }
+        if (buffer == null || buffer.capacity() < byteCount) {
+            buffer = ByteBuffer.allocate((int) byteCount);
+        }
+        buffer.clear();
+        buffer.limit((int) byteCount);
+        return buffer;
+    }
+
+    /**
+     * Write the file on the writer thread
+     */
+    private void write(String name, ByteBuffer buffer, long byteCount) {
+        File file = new File(directory, name);
+        File tempFile = null;
+        FileOutputStream outputStream = null;
+        try {
+            tempFile = File.createTempFile(name, TEMP_SUFFIX, directory);
+            outputStream = new FileOutputStream(tempFile);
+            FileChannel channel = outputStream.getChannel();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            outputStream.close();
+            outputStream = null;
+            if (!tempFile.renameTo(file)) {
+                throw new IOException("Cannot rename " + tempFile + " to " + file);
+            }
+            synchronized (this) {
+                Long previous = entries.put(name, byteCount);
+                if (previous != null) {
+                    size -= previous;
+                }
+                size += byteCount;
+                trimToSize(maxSize);
+            }
+        } catch (IOException | RuntimeException e) {
+            Log.w(TAG, "Cannot write " + file, e);
+        } finally {
+            closeQuietly(outputStream);
+            if (tempFile != null) {
+                tempFile.delete();
+            }
+            synchronized (this) {
+                pendingWrites.remove(name);
+                if (freeWriteBuffers.size() < writeBufferCount) {
+                    freeWriteBuffers.push(buffer);
+                }
+            }
+        }
+    }
+
+    /**
+     * Wait until parts queued before the call are written
+     */
+    void awaitWrites() throws InterruptedException {
+        final CountDownLatch latch = new CountDownLatch(1);
+        writer.execute(new Runnable() {
+            @Override
+            public void run() {
+                latch.countDown();
+            }
+        });
+        latch.await();
+    }
+
+    private ByteBuffer getBuffer(long byteCount) {
+        ByteBuffer buffer = buffers.get();
+        if (buffer == null || buffer.capacity() < byteCount) {
+            buffer = ByteBuffer.allocate((int) byteCount);
+            buffers.set(buffer);
+        }
+        buffer.clear();
+        buffer.limit((int) byteCount);
+        return buffer;
+    }
+
+    private void remove(String name) {
+        Long length = entries.remove(name);
+        if (length != null) {
+            size -= length;
+        }
+        new File(directory, name).delete();
+    }
+
+    /**
+     * Delete the least recently used files, must be called when holding the lock
+     */
+    private void trimToSize(long targetSize) {
+        Iterator<Map.Entry<String, Long>> iterator = entries.entrySet().iterator();
+        while (size > targetSize && iterator.hasNext()) {
+            Map.Entry<String, Long> entry = iterator.next();
+            iterator.remove();
+            size -= entry.getValue();
+            new File(directory, entry.getKey()).delete();
+        }
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        if (closeable != null) {
+            try {
+                closeable.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    /**
+     * Set maximum size in bytes, 0 disables writing new parts
+     */
+    synchronized void setMaxSize(long maxSize) {
+        this.maxSize = maxSize;
+        if (initialized) {
+            trimToSize(maxSize);
+        }
+    }
+
+    /**
+     * Raise maximum size in bytes to at least given size, so that views configured with
+     * smaller sizes don't trim parts of other views
+     */
+    synchronized void ensureMaxSize(long maxSize) {
+        if (maxSize > this.maxSize) {
+            setMaxSize(maxSize);
+        }
+    }
+
+    synchronized long getMaxSize() {
+        return maxSize;
+    }
+
+    synchronized long getSize() {
+        return size;
+    }
+
+    /**
+     * @return number of parts read from disk
+     */
+    synchronized int getHitCount() {
+        return hitCount;
+    }
+
+    /**
+     * @return number of parts which were looked up but not found on disk
+     */
+    synchronized int getMissCount() {
+        return missCount;
+    }
+
+    /**
+     * Delete all files
+     */
+    synchronized void clear() {
+        initialize();
+        trimToSize(0);
+    }
+}
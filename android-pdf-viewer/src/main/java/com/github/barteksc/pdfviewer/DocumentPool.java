@@ -0,0 +1,257 @@
+/**
+ * Copyright 2017 Bartosz Schiller
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.barteksc.pdfviewer;
+
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.os.Process;
+import android.os.SystemClock;
+
+import com.github.barteksc.pdfviewer.renderer.DocumentHandle;
+import com.github.barteksc.pdfviewer.util.Constants;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Opened documents, shared by all views in the application.
+ * <p>
+ * Documents from sources implementing {@link com.github.barteksc.pdfviewer.source.FingerprintSource}
+ * are opened once for all views showing them, and stay open for a while after the last view
+ * is recycled, so loading the same document again doesn't need to parse it again.
+ * At most {@link #getMaxIdleCount()} unused documents are kept, the least recently used
+ * are closed first, and unused documents are closed after {@link #getIdleTimeout()}.
+ * Documents are closed on a background thread of the pool, as closing may take a while.
+ */
+public class DocumentPool {
+
+    private static DocumentPool instance;
+
+    /**
+     * Opened documents by key, guarded by this
+     */
+    private final Map<String, SharedDocument> documents = new HashMap<>();
+
+    /**
+     * Documents without references, the least recently used first, guarded by this
+     */
+    private final LinkedHashMap<String, SharedDocument> idleDocuments = new LinkedHashMap<>();
+
+    private int maxIdleCount = Constants.DOCUMENT_POOL_SIZE;
+
+    private long idleTimeout = Constants.DOCUMENT_POOL_IDLE_TIMEOUT;
+
+    /**
+     * Looper closing documents, null to start own thread when it's first needed
+     */
+    private final Looper looper;
+
+    /**
+     * Handler closing documents, guarded by this
+     */
+    private Handler handler;
+
+    private final Runnable closeExpired = new Runnable() {
+        @Override
+        public void run() {
+            closeIdle(SystemClock.uptimeMillis() - getIdleTimeout());
+        }
+    };
+
+    public static synchronized DocumentPool getInstance() {
+        if (instance == null) {
+            instance = new DocumentPool();
+        }
+        return instance;
+    }
+
+    private DocumentPool() {
+        this(null);
+    }
+
+    /**
+     * @param looper looper closing documents, or null to close them on own background thread
+     */
+    DocumentPool(Looper looper) {
+        this.looper = looper;
+    }
+
+    /**
+     * Set maximum number of unused documents kept open, 0 closes documents when they are not used.
+     * Default {@link Constants#DOCUMENT_POOL_SIZE}.
+     */
+    public void setMaxIdleCount(int maxIdleCount) {
+        synchronized (this) {
+            this.maxIdleCount = Math.max(0, maxIdleCount);
+        }
+        trim();
+    }
+
+    public synchronized int getMaxIdleCount() {
+        return maxIdleCount;
+    }
+
+    /**
+     * Set time in milliseconds after which unused documents are closed.
+     * Default {@link Constants#DOCUMENT_POOL_IDLE_TIMEOUT}.
+     */
+    public synchronized void setIdleTimeout(long idleTimeout) {
+        this.idleTimeout = idleTimeout;
+    }
+
+    public synchronized long getIdleTimeout() {
+        return idleTimeout;
+    }
+
+    /**
+     * Close all unused documents
+     */
+    public void clear() {
+        closeIdle(Long.MAX_VALUE);
+    }
+
+    /**
+     * Get a reference to an opened document, called in the background
+     *
+     * @return document or null if it's not opened
+     */
+    synchronized DocumentHandle acquire(String key) {
+        SharedDocument document = documents.get(key);
+        if (document != null) {
+            if (document.references == 0) {
+                idleDocuments.remove(key);
+            }
+            document.references++;
+        }
+        return document;
+    }
+
+    /**
+     * Share a newly opened document, called in the background. If the same document was opened
+     * in the meantime by another view, given one is closed and the other one is returned.
+     *
+     * @return reference to the shared document
+     */
+    DocumentHandle share(String key, DocumentHandle document) {
+        synchronized (this) {
+            DocumentHandle shared = acquire(key);
+            if (shared == null) {
+                SharedDocument sharedDocument = new SharedDocument(this, key, document);
+                documents.put(key, sharedDocument);
+                return sharedDocument;
+            }
+            document.close();
+            return shared;
+        }
+    }
+
+    /**
+     * Release reference to the document, when it was the last one the document stays open until
+     * it is removed from the pool
+     */
+    void release(SharedDocument document) {
+        synchronized (this) {
+            if (--document.references > 0) {
+                return;
+            }
+            document.idleSince = SystemClock.uptimeMillis();
+            idleDocuments.put(document.getKey(), document);
+        }
+        trim();
+        Handler handler = getHandler();
+        handler.removeCallbacks(closeExpired);
+        handler.postDelayed(closeExpired, getIdleTimeout());
+    }
+
+    private synchronized Handler getHandler() {
+        if (handler == null) {
+            Looper handlerLooper = looper;
+            if (handlerLooper == null) {
+                HandlerThread thread = new HandlerThread("PDF document pool", Process.THREAD_PRIORITY_BACKGROUND);
+                thread.start();
+                handlerLooper = thread.getLooper();
+            }
+            handler = new Handler(handlerLooper);
+        }
+        return handler;
+    }
+
+    /**
+     * Close documents removed from the pool on the pool's thread
+     */
+    private void closeDocuments(final List<SharedDocument> closed) {
+        if (closed.isEmpty()) {
+            return;
+        }
+        getHandler().post(new Runnable() {
+            @Override
+            public void run() {
+                for (SharedDocument document : closed) {
+                    document.closeDocument();
+                }
+            }
+        });
+    }
+
+    /**
+     * Close the least recently used documents above the maximum count
+     */
+    private void trim() {
+        List<SharedDocument> closed = new ArrayList<>();
+        synchronized (this) {
+            Iterator<SharedDocument> iterator = idleDocuments.values().iterator();
+            while (idleDocuments.size() > maxIdleCount && iterator.hasNext()) {
+                SharedDocument document = iterator.next();
+                iterator.remove();
+                documents.remove(document.getKey());
+                closed.add(document);
+            }
+        }
+        closeDocuments(closed);
+    }
+
+    /**
+     * Close documents unused since given time
+     */
+    private void closeIdle(long idleBefore) {
+        List<SharedDocument> closed = new ArrayList<>();
+        boolean remaining = false;
+        synchronized (this) {
+            Iterator<SharedDocument> iterator = idleDocuments.values().iterator();
+            while (iterator.hasNext()) {
+                SharedDocument document = iterator.next();
+                if (document.idleSince <= idleBefore) {
+                    iterator.remove();
+                    documents.remove(document.getKey());
+                    closed.add(document);
+                } else {
+                    remaining = true;
+                }
+            }
+        }
+        closeDocuments(closed);
+        if (remaining) {
+            Handler handler = getHandler();
+            handler.removeCallbacks(closeExpired);
+            handler.postDelayed(closeExpired, getIdleTimeout());
+        }
+    }
+}
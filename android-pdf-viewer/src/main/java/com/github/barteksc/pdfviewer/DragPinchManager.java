@@ -46,6 +46,11 @@ class DragPinchManager implements GestureDetector.OnGestureListener, GestureDete
     private boolean scrolling = false;
     private boolean scaling = false;
 
+    /**
+     * Time of the last scroll event, used to calculate scroll velocity
+     */
+    private long lastScrollTime;
+
     public DragPinchManager(PDFView pdfView, AnimationManager animationManager) {
         this.pdfView = pdfView;
         this.animationManager = animationManager;
@@ -117,6 +122,7 @@ class DragPinchManager implements GestureDetector.OnGestureListener, GestureDete
     @Override
     public boolean onDown(MotionEvent e) {
         animationManager.stopFling();
+        pdfView.requestRenderingFocus();
         return true;
     }
 
@@ -132,6 +138,11 @@ class DragPinchManager implements GestureDetector.OnGestureListener, GestureDete
 
     @Override
     public boolean onScroll(MotionEvent e1, MotionEvent e2, float distanceX, float distanceY) {
+        if (scrolling && e2.getEventTime() > lastScrollTime) {
+            float distance = swipeVertical ? distanceY : distanceX;
+            pdfView.setScrollVelocity(distance * 1000 / (e2.getEventTime() - lastScrollTime));
+        }
+        lastScrollTime = e2.getEventTime();
         scrolling = true;
         if (isZooming() || isSwipeEnabled) {
             pdfView.moveRelativeTo(-distanceX, -distanceY);
@@ -143,6 +154,9 @@ class DragPinchManager implements GestureDetector.OnGestureListener, GestureDete
     }
 
     public void onScrollEnd(MotionEvent event) {
+        if (!animationManager.isFlinging()) {
+            pdfView.setScrollVelocity(0);
+        }
         pdfView.loadPages();
         hideHandle();
     }
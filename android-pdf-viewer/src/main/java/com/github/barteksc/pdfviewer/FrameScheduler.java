@@ -0,0 +1,112 @@
+/**
+ * Copyright 2017 Bartosz Schiller
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.barteksc.pdfviewer;
+
+import android.os.Build;
+import android.view.Choreographer;
+import android.view.View;
+
+/**
+ * Runs a task at most once per frame, no matter how many times it was scheduled during the frame.
+ * <p>
+ * On API 16 and newer the task runs in a {@link Choreographer} frame callback, before the frame
+ * is drawn, on older versions it is posted to the view.
+ */
+class FrameScheduler {
+
+    private final View view;
+
+    private final Runnable task;
+
+    private boolean scheduled = false;
+
+    private final Runnable postedTask = new Runnable() {
+        @Override
+        public void run() {
+            runScheduled();
+        }
+    };
+
+    /**
+     * Frame callback, created only on API 16 and newer
+     */
+    private FrameCallback frameCallback;
+
+    FrameScheduler(View view, Runnable task) {
+        this.view = view;
+        this.task = task;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+            frameCallback = new FrameCallback();
+        }
+    }
+
+    /**
+     * Run the task in the next frame, must be called on the UI thread
+     */
+    void schedule() {
+        if (scheduled) {
+            return;
+        }
+        scheduled = true;
+        if (frameCallback != null) {
+            frameCallback.post();
+        } else {
+            view.post(postedTask);
+        }
+    }
+
+    /**
+     * Cancel the scheduled task
+     */
+    void cancel() {
+        if (!scheduled) {
+            return;
+        }
+        scheduled = false;
+        if (frameCallback != null) {
+            frameCallback.remove();
+        } else {
+            view.removeCallbacks(postedTask);
+        }
+    }
+
+    boolean isScheduled() {
+        return scheduled;
+    }
+
+    private void runScheduled() {
+        if (scheduled) {
+            scheduled = false;
+            task.run();
+        }
+    }
+
+    private class FrameCallback implements Choreographer.FrameCallback {
+
+        void post() {
+            Choreographer.getInstance().postFrameCallback(this);
+        }
+
+        void remove() {
+            Choreographer.getInstance().removeFrameCallback(this);
+        }
+
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            runScheduled();
+        }
+    }
+}
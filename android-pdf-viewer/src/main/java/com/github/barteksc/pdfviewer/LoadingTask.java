@@ -0,0 +1,322 @@
+/**
+ * Copyright 2017 Bartosz Schiller
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.barteksc.pdfviewer;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+
+import com.github.barteksc.pdfviewer.listener.OnLoadProgressListener;
+import com.github.barteksc.pdfviewer.renderer.DocumentHandle;
+import com.github.barteksc.pdfviewer.renderer.PageRenderer;
+import com.github.barteksc.pdfviewer.source.DocumentSource;
+import com.github.barteksc.pdfviewer.source.FingerprintSource;
+import com.github.barteksc.pdfviewer.util.Constants;
+import com.github.barteksc.pdfviewer.util.Util;
+
+import java.lang.ref.WeakReference;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Loading of a document into a {@link PDFView}, returned by {@link PDFView.Configurator#load()}.
+ * <p>
+ * The document is opened on an executor, by default one shared by all views, see
+ * {@link PDFView.Configurator#loadExecutor(Executor)}, and phases of loading are reported to
+ * {@link OnLoadProgressListener} on the UI thread. The default page is opened and sized first,
+ * so it's shown and rendered before other pages are measured. The task holds the view weakly.
+ * <p>
+ * A load is cancelled with {@link #cancel()}, or when the view is recycled or loads another document.
+ * Pdfium cannot be interrupted, so a document which is being opened is closed as soon as it's opened,
+ * and every document opened by a cancelled load is closed. Loads cancelled before they start
+ * don't open anything.
+ */
+public class LoadingTask {
+
+    private static ThreadPoolExecutor defaultExecutor;
+
+    private final WeakReference<PDFView> pdfViewReference;
+
+    private final Context context;
+
+    private final DocumentSource docSource;
+
+    private final String password;
+
+    private final Handler handler = new Handler(Looper.getMainLooper());
+
+    private PageRenderer pageRenderer;
+
+    private int firstPageIdx;
+
+    private volatile boolean cancelled = false;
+
+    /**
+     * True when the result was delivered to the view, used only on the UI thread
+     */
+    private boolean done = false;
+
+    LoadingTask(PDFView pdfView, DocumentSource docSource, String password) {
+        this.pdfViewReference = new WeakReference<>(pdfView);
+        this.context = pdfView.getContext().getApplicationContext();
+        this.docSource = docSource;
+        this.password = password;
+    }
+
+    /**
+     * @return executor used when none is configured, with {@link Constants#LOAD_THREADS} threads
+     */
+    static synchronized Executor getDefaultExecutor() {
+        if (defaultExecutor == null) {
+            defaultExecutor = new ThreadPoolExecutor(Constants.LOAD_THREADS, Constants.LOAD_THREADS,
+                    30, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new LoaderThreadFactory());
+            defaultExecutor.allowCoreThreadTimeOut(true);
+        }
+        return defaultExecutor;
+    }
+
+    /**
+     * Start loading, called on the UI thread
+     */
+    void start(PageRenderer pageRenderer, int firstPageIdx, Executor executor) {
+        this.pageRenderer = pageRenderer;
+        this.firstPageIdx = firstPageIdx;
+        try {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    load();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            deliverError(e);
+        }
+    }
+
+    /**
+     * Cancel the load and recycle the view if it's still loading this document.
+     * Must be called on the UI thread.
+     *
+     * @return false if the load has already finished or was cancelled
+     */
+    public boolean cancel() {
+        if (done || cancelled) {
+            return false;
+        }
+        PDFView pdfView = pdfViewReference.get();
+        if (pdfView != null && pdfView.isLoading(this)) {
+            // recycling cancels the task
+            pdfView.recycle();
+        } else {
+            cancelled = true;
+        }
+        return true;
+    }
+
+    /**
+     * Mark the task cancelled without touching the view, called by the view
+     */
+    void cancelLoading() {
+        cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * @return true if the document was passed to the view, or loading failed
+     */
+    public boolean isDone() {
+        return done;
+    }
+
+    /**
+     * Open the document and read the first page, called on the executor
+     */
+    private void load() {
+        if (cancelled) {
+            // superseded before it started
+            return;
+        }
+        DocumentHandle document = null;
+        int openedPage = -1;
+        try {
+            long startTime = System.nanoTime();
+            String fingerprint = null;
+            boolean reused = false;
+            if (docSource instanceof FingerprintSource) {
+                fingerprint = ((FingerprintSource) docSource).getFingerprint(context);
+            }
+            if (fingerprint != null) {
+                // the document may be opened by another view or kept open after the last load
+                DocumentPool pool = DocumentPool.getInstance();
+                String key = createPoolKey(fingerprint);
+                document = pool.acquire(key);
+                reused = document != null;
+                if (document == null) {
+                    document = pool.share(key, pageRenderer.openDocument(context, docSource, password));
+                }
+            } else {
+                document = pageRenderer.openDocument(context, docSource, password);
+            }
+            if (cancelled) {
+                release(document, openedPage);
+                return;
+            }
+            postPhase(new Phase() {
+                @Override
+                void report(OnLoadProgressListener listener) {
+                    listener.onDocumentOpened();
+                }
+            });
+
+            final int pageCount = document.getPageCount();
+            postPhase(new Phase() {
+                @Override
+                void report(OnLoadProgressListener listener) {
+                    listener.onPageCountKnown(pageCount);
+                }
+            });
+
+            // Other pages have the same size until they are measured
+            final int firstPage = Math.max(0, Math.min(firstPageIdx, pageCount - 1));
+            document.openPage(firstPage);
+            openedPage = firstPage;
+            final int pageWidth = document.getPageWidth(firstPage);
+            final int pageHeight = document.getPageHeight(firstPage);
+            long openTime = System.nanoTime() - startTime;
+            if (cancelled) {
+                release(document, openedPage);
+                return;
+            }
+            postPhase(new Phase() {
+                @Override
+                void report(OnLoadProgressListener listener) {
+                    listener.onFirstPageSized(firstPage, pageWidth, pageHeight);
+                }
+            });
+            deliver(document, firstPage, pageWidth, pageHeight, fingerprint, openTime, reused);
+        } catch (Throwable t) {
+            if (document != null) {
+                release(document, openedPage);
+            }
+            deliverError(t);
+        }
+    }
+
+    /**
+     * Close the page opened by the load and the document, when the document isn't passed to the view.
+     * A pooled document stays open for other views, so the page must be closed explicitly.
+     *
+     * @param openedPage page opened by the load, or -1
+     */
+    private static void release(DocumentHandle document, int openedPage) {
+        try {
+            if (openedPage >= 0) {
+                document.closePage(openedPage);
+            }
+        } finally {
+            document.close();
+        }
+    }
+
+    /**
+     * Document opened with a different password or renderer is a different document
+     */
+    private String createPoolKey(String fingerprint) {
+        String key = fingerprint + "/" + pageRenderer.getClass().getName();
+        if (password != null) {
+            key += "/" + Util.md5(password.getBytes());
+        }
+        return key;
+    }
+
+    /**
+     * @return view which is still loading this task, or null if the task was cancelled or the view is gone
+     */
+    private PDFView getLoadingView() {
+        PDFView pdfView = pdfViewReference.get();
+        if (cancelled || pdfView == null || !pdfView.isLoading(this)) {
+            return null;
+        }
+        return pdfView;
+    }
+
+    private void postPhase(final Phase phase) {
+        handler.post(new Runnable() {
+            @Override
+            public void run() {
+                PDFView pdfView = getLoadingView();
+                if (pdfView != null && pdfView.getOnLoadProgressListener() != null) {
+                    phase.report(pdfView.getOnLoadProgressListener());
+                }
+            }
+        });
+    }
+
+    /**
+     * Pass the document to the view on the UI thread, or close it if the load was cancelled in the meantime
+     */
+    private void deliver(final DocumentHandle document, final int firstPage, final int pageWidth, final int pageHeight,
+                         final String fingerprint, final long openTime, final boolean reused) {
+        handler.post(new Runnable() {
+            @Override
+            public void run() {
+                PDFView pdfView = getLoadingView();
+                if (pdfView == null) {
+                    release(document, firstPage);
+                    return;
+                }
+                done = true;
+                pdfView.loadComplete(document, firstPage, pageWidth, pageHeight, fingerprint, openTime, reused);
+            }
+        });
+    }
+
+    private void deliverError(final Throwable t) {
+        handler.post(new Runnable() {
+            @Override
+            public void run() {
+                PDFView pdfView = getLoadingView();
+                if (pdfView != null) {
+                    done = true;
+                    pdfView.loadError(t);
+                }
+            }
+        });
+    }
+
+    private abstract static class Phase {
+
+        abstract void report(OnLoadProgressListener listener);
+    }
+
+    private static class LoaderThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger count = new AtomicInteger(1);
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            return new Thread(runnable, "PDF loader #" + count.getAndIncrement());
+        }
+    }
+}
@@ -27,8 +27,9 @@ import android.graphics.Rect;
 import android.graphics.RectF;
 import android.graphics.drawable.Drawable;
 import android.net.Uri;
-import android.os.AsyncTask;
 import android.os.HandlerThread;
+import android.os.Looper;
+import android.os.SystemClock;
 import android.util.AttributeSet;
 import android.util.Log;
 import android.widget.RelativeLayout;
@@ -37,36 +38,46 @@ import com.github.barteksc.pdfviewer.exception.PageRenderingException;
 import com.github.barteksc.pdfviewer.listener.OnDrawListener;
 import com.github.barteksc.pdfviewer.listener.OnErrorListener;
 import com.github.barteksc.pdfviewer.listener.OnLoadCompleteListener;
+import com.github.barteksc.pdfviewer.listener.OnLoadProgressListener;
 import com.github.barteksc.pdfviewer.listener.OnPageChangeListener;
 import com.github.barteksc.pdfviewer.listener.OnPageErrorListener;
 import com.github.barteksc.pdfviewer.listener.OnPageScrollListener;
 import com.github.barteksc.pdfviewer.listener.OnRenderListener;
+import com.github.barteksc.pdfviewer.listener.OnRenderMetricsListener;
 import com.github.barteksc.pdfviewer.listener.OnTapListener;
+import com.github.barteksc.pdfviewer.model.Bookmark;
+import com.github.barteksc.pdfviewer.model.DocumentMeta;
 import com.github.barteksc.pdfviewer.model.PagePart;
+import com.github.barteksc.pdfviewer.renderer.DocumentHandle;
+import com.github.barteksc.pdfviewer.renderer.PageRenderer;
+import com.github.barteksc.pdfviewer.renderer.PdfiumRenderer;
 import com.github.barteksc.pdfviewer.scroll.ScrollHandle;
 import com.github.barteksc.pdfviewer.source.AssetSource;
 import com.github.barteksc.pdfviewer.source.ByteArraySource;
 import com.github.barteksc.pdfviewer.source.DocumentSource;
 import com.github.barteksc.pdfviewer.source.FileSource;
+import com.github.barteksc.pdfviewer.source.FingerprintSource;
 import com.github.barteksc.pdfviewer.source.InputStreamSource;
 import com.github.barteksc.pdfviewer.source.UriSource;
 import com.github.barteksc.pdfviewer.util.ArrayUtils;
 import com.github.barteksc.pdfviewer.util.Constants;
 import com.github.barteksc.pdfviewer.util.MathUtils;
 import com.github.barteksc.pdfviewer.util.Util;
-import com.shockwave.pdfium.PdfDocument;
-import com.shockwave.pdfium.PdfiumCore;
 
 import java.io.File;
 import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.List;
+import java.util.concurrent.Executor;
 
 /**
  * It supports animations, zoom, cache, and swipe.
  * <p>
  * To fully understand this class you must know its principles :
  * - The PDF document is seen as if we always want to draw all the pages.
+ * - Every page is fitted into the view with its own size, see {@link PageLayout}.
  * - The thing is that we only draw the visible parts.
  * - All parts are the same size, this is because we can't interrupt a native page rendering,
  * so we need these renderings to be as fast as possible, and be able to interrupt them
@@ -77,7 +88,7 @@ import java.util.List;
  * - DocumentPage = A page of the PDF document.
  * - UserPage = A page as defined by the user.
  * By default, they're the same. But the user can change the pages order
- * using {@link #load(DocumentSource, String, OnLoadCompleteListener, OnErrorListener, int[])}. In this
+ * using {@link Configurator#pages(int...)}. In this
  * particular case, a userPage of 5 can refer to a documentPage of 17.
  */
 public class PDFView extends RelativeLayout {
@@ -103,16 +114,57 @@ public class PDFView extends RelativeLayout {
 
     private ScrollDir scrollDir = ScrollDir.NONE;
 
+    /**
+     * Velocity of scrolling or fling along the scroll axis, in pixels per second,
+     * positive towards the end of the document
+     */
+    private float scrollVelocity = 0;
+
     /**
      * Rendered parts go to the cache manager
      */
     CacheManager cacheManager;
 
+    /**
+     * Bitmaps removed from the cache are reused for rendering new parts
+     */
+    BitmapPool bitmapPool;
+
+    /**
+     * Rendered parts are also cached on disk when enabled, null otherwise
+     */
+    DiskCache diskCache;
+
+    /**
+     * Measures rendering times, used to choose part size when {@link #adaptivePartSize} is enabled
+     */
+    final PartSizeTuner partSizeTuner = new PartSizeTuner();
+
+    /**
+     * Cache size set with <code>Configurator#cacheSize(long)</code>, quotas of a {@link RenderingEngine} don't exceed it
+     */
+    private long cacheSize;
+
+    /**
+     * Maximum size of the disk cache in bytes, 0 if disabled
+     */
+    private long diskCacheSize = 0;
+
+    /**
+     * Identity of the loaded document in the disk cache, null if the source cannot provide it
+     */
+    private String documentFingerprint;
+
     /**
      * Animation manager manage all offset and zoom animation
      */
     private AnimationManager animationManager;
 
+    /**
+     * Coalesces calls to {@link #loadPages()} made during one frame
+     */
+    private FrameScheduler loadPagesScheduler;
+
     /**
      * Drag manager manage all touch events
      */
@@ -152,14 +204,9 @@ public class PDFView extends RelativeLayout {
     private int currentFilteredPage;
 
     /**
-     * The actual width and height of the pages in the PDF document
+     * Sizes and offsets of pages fitted to the component size, null until the document is loaded
      */
-    private int pageWidth, pageHeight;
-
-    /**
-     * The optimal width and height of the pages to fit the component size
-     */
-    private float optimalPageWidth, optimalPageHeight;
+    private PageLayout pageLayout;
 
     /**
      * If you picture all the pages side by side in their optimal width,
@@ -180,20 +227,45 @@ public class PDFView extends RelativeLayout {
      */
     private float zoom = 1f;
 
+    /**
+     * Zoom level parts are rendered at, see {@link #getRenderZoom()}
+     */
+    private float renderZoom = 1f;
+
+    /**
+     * Zoom levels parts can be rendered at, sorted, or null for powers of {@link Constants#ZOOM_LEVEL_RATIO}
+     */
+    private float[] renderZoomLevels;
+
+    /**
+     * Maximum scale of drawn parts before rendering them at another zoom level
+     */
+    private float renderScaleThreshold = Constants.RENDER_SCALE_THRESHOLD;
+
     /**
      * True if the PDFView has been recycled
      */
     private boolean recycled = true;
 
+    /**
+     * Incremented on every {@link #recycle()}, parts and errors of recycled documents are dropped
+     */
+    private int loadGeneration = 0;
+
     /**
      * Current state of the view
      */
     private State state = State.DEFAULT;
 
     /**
-     * Async task used during the loading phase to decode a PDF document
+     * Task loading the document, null when not loading
      */
-    private DecodingAsyncTask decodingAsyncTask;
+    private LoadingTask loadingTask;
+
+    /**
+     * Executor opening documents, null for the default one
+     */
+    private Executor loadExecutor;
 
     /**
      * The thread {@link #renderingHandler} will run on
@@ -204,6 +276,66 @@ public class PDFView extends RelativeLayout {
      */
     RenderingHandler renderingHandler;
 
+    /**
+     * Number of threads rendering parts
+     */
+    private int renderThreads = 1;
+
+    /**
+     * Queued parts further from the view than this number of view sizes are cancelled
+     */
+    private float renderKeepAliveDistance = 1f;
+
+    /**
+     * Size of rendered parts, in pixels
+     */
+    private float partSize = Constants.PART_SIZE;
+
+    /**
+     * Size of thumbnails relative to the page size
+     */
+    private float thumbnailRatio = Constants.THUMBNAIL_RATIO;
+
+    /**
+     * Number of preloaded rows or columns of parts
+     */
+    private int preloadCount = Constants.PRELOAD_COUNT;
+
+    /**
+     * Maximum number of opened pages
+     */
+    private int maxOpenPages = Constants.MAX_OPEN_PAGES;
+
+    /**
+     * True if part size is chosen from measured rendering times
+     */
+    private boolean adaptivePartSize = false;
+
+    /**
+     * True if part size was already chosen for the current document
+     */
+    private boolean partSizeTuned = false;
+
+    /**
+     * True if parts are loaded at the destination of a fling instead of the current position
+     */
+    private boolean flingAwareLoading = true;
+
+    /**
+     * Minimum time between loading parts during animations, in milliseconds
+     */
+    private long animationLoadInterval = Constants.ANIMATION_LOAD_INTERVAL;
+
+    /**
+     * {@link SystemClock#uptimeMillis()} of the last loading of parts during an animation
+     */
+    private long lastAnimationLoadTime = 0;
+
+    /**
+     * Position of a page part on the view, used when calculating rendering priorities
+     */
+    private final RectF partRect = new RectF();
+
     private PagesLoader pagesLoader;
 
     /**
@@ -240,6 +372,30 @@ public class PDFView extends RelativeLayout {
      */
     private OnTapListener onTapListener;
 
+    /**
+     * Receives measurements of rendering, nothing is measured when null
+     */
+    private OnRenderMetricsListener onRenderMetricsListener;
+
+    private OnLoadProgressListener onLoadProgressListener;
+
+    /**
+     * Table of contents read in the background after all pages are measured, null until then
+     */
+    private List<Bookmark> tableOfContents;
+
+    /**
+     * {@link System#nanoTime()} of the first {@link #loadPages()} waiting for a visible part, only when measuring
+     */
+    private long visiblePartRequestTime;
+
+    private boolean waitingForVisiblePart = false;
+
+    /**
+     * Number of passes loading parts around the view, on the UI thread
+     */
+    private int loadPagesPassCount = 0;
+
     /**
      * Call back object to call when the page load error occurs
      */
@@ -268,11 +424,21 @@ public class PDFView extends RelativeLayout {
     private boolean swipeVertical = true;
 
     /**
-     * Pdfium core for loading and rendering PDFs
+     * Backend for loading and rendering PDFs, null for {@link #pdfiumRenderer}
      */
-    private PdfiumCore pdfiumCore;
+    private PageRenderer pageRenderer;
 
-    private PdfDocument pdfDocument;
+    /**
+     * Default backend, created on the first load
+     */
+    private PdfiumRenderer pdfiumRenderer;
+
+    /**
+     * Rendering thread, workers, cache budget and documents shared with other views, null if not shared
+     */
+    private RenderingEngine renderingEngine;
+
+    private DocumentHandle document;
 
     private ScrollHandle scrollHandle;
 
@@ -317,7 +483,13 @@ public class PDFView extends RelativeLayout {
     /**
      * pages numbers used when calling onDrawAllListener
      */
-    private List<Integer> onDrawPagesNums = new ArrayList<>(10);
+    private final BitSet onDrawPagesNums = new BitSet();
+
+    /**
+     * Source and destination of the drawn bitmap, reused so that drawing doesn't allocate
+     */
+    private final Rect drawSrcRect = new Rect();
+    private final RectF drawDstRect = new RectF();
 
     /**
      * Construct the initial view
@@ -331,24 +503,31 @@ public class PDFView extends RelativeLayout {
             return;
         }
 
-        cacheManager = new CacheManager();
+        bitmapPool = new BitmapPool(Util.getDefaultBitmapPoolSize(context));
+        cacheSize = Util.getDefaultCacheSize(context);
+        cacheManager = new CacheManager(cacheSize, bitmapPool);
         animationManager = new AnimationManager(this);
+        loadPagesScheduler = new FrameScheduler(this, new Runnable() {
+            @Override
+            public void run() {
+                performLoadPages();
+            }
+        });
         dragPinchManager = new DragPinchManager(this, animationManager);
 
         paint = new Paint();
         debugPaint = new Paint();
         debugPaint.setStyle(Style.STROKE);
 
-        pdfiumCore = new PdfiumCore(context);
         setWillNotDraw(false);
     }
 
-    private void load(DocumentSource docSource, String password, OnLoadCompleteListener listener, OnErrorListener onErrorListener) {
-        load(docSource, password, listener, onErrorListener, null);
-    }
-
-    private void load(DocumentSource docSource, String password, OnLoadCompleteListener onLoadCompleteListener, OnErrorListener onErrorListener, int[] userPages) {
+    private void load(LoadingTask task, OnLoadCompleteListener onLoadCompleteListener, OnErrorListener onErrorListener, int[] userPages) {
 
+        if (task.isCancelled()) {
+            // recycled or superseded by another load before it started
+            return;
+        }
         if (!recycled) {
             throw new IllegalStateException("Don't call load on a PDF View without recycling it first.");
         }
@@ -363,15 +542,30 @@ public class PDFView extends RelativeLayout {
         this.onLoadCompleteListener = onLoadCompleteListener;
         this.onErrorListener = onErrorListener;
 
-        int firstPageIdx = 0;
+        // the default page is shown first, so it's sized first, page count isn't known yet
+        int firstPageIdx = Math.max(0, defaultPage);
         if (originalUserPages != null) {
-            firstPageIdx = originalUserPages[0];
+            firstPageIdx = originalUserPages[Math.min(firstPageIdx, originalUserPages.length - 1)];
+        }
+
+        PageRenderer renderer = pageRenderer;
+        if (renderer == null) {
+            if (pdfiumRenderer == null) {
+                pdfiumRenderer = new PdfiumRenderer(getContext());
+            }
+            renderer = pdfiumRenderer;
         }
 
         recycled = false;
         // Start decoding document
-        decodingAsyncTask = new DecodingAsyncTask(docSource, password, this, pdfiumCore, firstPageIdx);
-        decodingAsyncTask.executeOnExecutor(AsyncTask.THREAD_POOL_EXECUTOR);
+        task.start(renderer, firstPageIdx, loadExecutor != null ? loadExecutor : LoadingTask.getDefaultExecutor());
+    }
+
+    /**
+     * @return true if given task is loading the document of this view
+     */
+    boolean isLoading(LoadingTask task) {
+        return loadingTask == task;
     }
 
     /**
@@ -402,6 +596,13 @@ public class PDFView extends RelativeLayout {
     }
 
     void showPage(int pageNb) {
+        showPage(pageNb, true);
+    }
+
+    /**
+     * @param load whether to load parts
+     */
+    private void showPage(int pageNb, boolean load) {
         if (recycled) {
             return;
         }
@@ -418,7 +619,9 @@ public class PDFView extends RelativeLayout {
             }
         }
 
-        loadPages();
+        if (load) {
+            loadPages();
+        }
 
         if (scrollHandle != null && !documentFitsView()) {
             scrollHandle.setPageNum(currentPage + 1);
@@ -463,21 +666,41 @@ public class PDFView extends RelativeLayout {
         setPositionOffset(progress, true);
     }
 
+    /**
+     * @return offset of the page along the scroll axis, at current zoom
+     */
     private float calculatePageOffset(int page) {
+        if (pageLayout == null) {
+            return 0;
+        }
+        return toCurrentScale(pageLayout.getPageOffset(page));
+    }
+
+    /**
+     * @return X position of the page in the big strip, at current zoom
+     */
+    private float calculatePageX(int page) {
         if (swipeVertical) {
-            return toCurrentScale(page * optimalPageHeight + page * spacingPx);
-        } else {
-            return toCurrentScale(page * optimalPageWidth + page * spacingPx);
+            return toCurrentScale(pageLayout.getSecondaryPageOffset(page));
         }
+        return calculatePageOffset(page);
     }
 
-    float calculateDocLength() {
-        int pageCount = getPageCount();
+    /**
+     * @return Y position of the page in the big strip, at current zoom
+     */
+    private float calculatePageY(int page) {
         if (swipeVertical) {
-            return toCurrentScale(pageCount * optimalPageHeight + (pageCount - 1) * spacingPx);
-        } else {
-            return toCurrentScale(pageCount * optimalPageWidth + (pageCount - 1) * spacingPx);
+            return calculatePageOffset(page);
+        }
+        return toCurrentScale(pageLayout.getSecondaryPageOffset(page));
+    }
+
+    float calculateDocLength() {
+        if (pageLayout == null) {
+            return 0;
         }
+        return toCurrentScale(pageLayout.getDocLength());
     }
 
     public void stopFling() {
@@ -539,6 +762,27 @@ public class PDFView extends RelativeLayout {
         this.onDrawAllListener = onDrawAllListener;
     }
 
+    private void setOnRenderMetricsListener(OnRenderMetricsListener onRenderMetricsListener) {
+        this.onRenderMetricsListener = onRenderMetricsListener;
+        cacheManager.setMetricsListener(onRenderMetricsListener);
+    }
+
+    OnRenderMetricsListener getOnRenderMetricsListener() {
+        return onRenderMetricsListener;
+    }
+
+    private void setOnLoadProgressListener(OnLoadProgressListener onLoadProgressListener) {
+        this.onLoadProgressListener = onLoadProgressListener;
+    }
+
+    OnLoadProgressListener getOnLoadProgressListener() {
+        return onLoadProgressListener;
+    }
+
+    private void setLoadExecutor(Executor loadExecutor) {
+        this.loadExecutor = loadExecutor;
+    }
+
     private void setOnPageErrorListener(OnPageErrorListener onPageErrorListener) {
         this.onPageErrorListener = onPageErrorListener;
     }
@@ -554,14 +798,18 @@ public class PDFView extends RelativeLayout {
     public void recycle() {
 
         animationManager.stopAll();
+        loadPagesScheduler.cancel();
+        if (renderingEngine != null) {
+            renderingEngine.detach(this);
+        }
 
         // Stop tasks
         if (renderingHandler != null) {
             renderingHandler.stop();
-            renderingHandler.removeMessages(RenderingHandler.MSG_RENDER_TASK);
         }
-        if (decodingAsyncTask != null) {
-            decodingAsyncTask.cancel(true);
+        if (loadingTask != null) {
+            loadingTask.cancelLoading();
+            loadingTask = null;
         }
 
         // Clear caches
@@ -571,19 +819,30 @@ public class PDFView extends RelativeLayout {
             scrollHandle.destroyLayout();
         }
 
-        if (pdfiumCore != null && pdfDocument != null) {
-            pdfiumCore.closeDocument(pdfDocument);
+        if (renderingHandler != null) {
+            // parts may be rendered now, the document is closed after them
+            renderingHandler.closeDocument();
+        } else if (document != null) {
+            document.close();
         }
+        loadGeneration++;
 
         renderingHandler = null;
+        waitingForVisiblePart = false;
+        pageLayout = null;
+        documentFingerprint = null;
+        tableOfContents = null;
         originalUserPages = null;
         filteredUserPages = null;
         filteredUserPageIndexes = null;
-        pdfDocument = null;
+        document = null;
         scrollHandle = null;
         isScrollHandleInit = false;
         currentXOffset = currentYOffset = 0;
         zoom = 1f;
+        renderZoom = 1f;
+        partSizeTuned = false;
+        partSizeTuner.reset();
         recycled = true;
         state = State.DEFAULT;
     }
@@ -592,6 +851,10 @@ public class PDFView extends RelativeLayout {
         return recycled;
     }
 
+    int getLoadGeneration() {
+        return loadGeneration;
+    }
+
     /**
      * Handle fling animation
      */
@@ -607,6 +870,12 @@ public class PDFView extends RelativeLayout {
     @Override
     protected void onDetachedFromWindow() {
         recycle();
+        if (bitmapPool != null) {
+            if (Constants.DEBUG_MODE) {
+                Log.d(TAG, bitmapPool.toString());
+            }
+            bitmapPool.clear();
+        }
         super.onDetachedFromWindow();
     }
 
@@ -630,7 +899,7 @@ public class PDFView extends RelativeLayout {
         if (swipeVertical) {
             if (direction < 0 && currentXOffset < 0) {
                 return true;
-            } else if (direction > 0 && currentXOffset + toCurrentScale(optimalPageWidth) > getWidth()) {
+            } else if (direction > 0 && currentXOffset + toCurrentScale(getOptimalPageWidth()) > getWidth()) {
                 return true;
             }
         } else {
@@ -654,7 +923,7 @@ public class PDFView extends RelativeLayout {
         } else {
             if (direction < 0 && currentYOffset < 0) {
                 return true;
-            } else if (direction > 0 && currentYOffset + toCurrentScale(optimalPageHeight) > getHeight()) {
+            } else if (direction > 0 && currentYOffset + toCurrentScale(getOptimalPageHeight()) > getHeight()) {
                 return true;
             }
         }
@@ -716,26 +985,52 @@ public class PDFView extends RelativeLayout {
             return;
         }
 
+        long drawStartTime = onRenderMetricsListener != null ? System.nanoTime() : 0;
+        int drawnParts = 0;
+        Util.beginTraceSection("PDFView draw");
+
         // Moves the canvas before drawing any element
         float currentXOffset = this.currentXOffset;
         float currentYOffset = this.currentYOffset;
         canvas.translate(currentXOffset, currentYOffset);
 
         // Draws thumbnails
-        for (PagePart part : cacheManager.getThumbnails()) {
-            drawPart(canvas, part);
+        // Only pages intersecting the view are drawn
+        int firstPage, lastPage;
+        if (swipeVertical) {
+            firstPage = pageLayout.getPageAtOffset(toRealScale(-currentYOffset));
+            lastPage = pageLayout.getPageAtOffset(toRealScale(-currentYOffset + getHeight()));
+        } else {
+            firstPage = pageLayout.getPageAtOffset(toRealScale(-currentXOffset));
+            lastPage = pageLayout.getPageAtOffset(toRealScale(-currentXOffset + getWidth()));
+        }
 
+        // Indexed loops, because iterators would be allocated on every frame
+        List<PagePart> thumbnails = cacheManager.getThumbnails();
+        for (int i = 0; i < thumbnails.size(); i++) {
+            PagePart thumbnail = thumbnails.get(i);
+            if (thumbnail.getUserPage() >= firstPage && thumbnail.getUserPage() <= lastPage
+                    && drawPart(canvas, thumbnail)) {
+                drawnParts++;
+            }
         }
 
         // Draws parts
-        for (PagePart part : cacheManager.getPageParts()) {
-            drawPart(canvas, part);
-            if (onDrawAllListener != null && !onDrawPagesNums.contains(part.getUserPage())) {
-                onDrawPagesNums.add(part.getUserPage());
+        List<PagePart> parts = cacheManager.getDrawableParts();
+        for (int i = CacheManager.indexOfPage(parts, firstPage); i < parts.size(); i++) {
+            PagePart part = parts.get(i);
+            if (part.getUserPage() > lastPage) {
+                break;
+            }
+            if (drawPart(canvas, part)) {
+                drawnParts++;
+            }
+            if (onDrawAllListener != null) {
+                onDrawPagesNums.set(part.getUserPage());
             }
         }
 
-        for (Integer page : onDrawPagesNums) {
+        for (int page = onDrawPagesNums.nextSetBit(0); page >= 0; page = onDrawPagesNums.nextSetBit(page + 1)) {
             drawWithListener(canvas, page, onDrawAllListener);
         }
         onDrawPagesNums.clear();
@@ -744,23 +1039,22 @@ public class PDFView extends RelativeLayout {
 
         // Restores the canvas position
         canvas.translate(-currentXOffset, -currentYOffset);
+
+        Util.endTraceSection();
+        if (onRenderMetricsListener != null) {
+            onRenderMetricsListener.onDraw(System.nanoTime() - drawStartTime, drawnParts);
+        }
     }
 
     private void drawWithListener(Canvas canvas, int page, OnDrawListener listener) {
         if (listener != null) {
-            float translateX, translateY;
-            if (swipeVertical) {
-                translateX = 0;
-                translateY = calculatePageOffset(page);
-            } else {
-                translateY = 0;
-                translateX = calculatePageOffset(page);
-            }
+            float translateX = calculatePageX(page);
+            float translateY = calculatePageY(page);
 
             canvas.translate(translateX, translateY);
             listener.onLayerDrawn(canvas,
-                    toCurrentScale(optimalPageWidth),
-                    toCurrentScale(optimalPageHeight),
+                    toCurrentScale(pageLayout.getPageWidth(page)),
+                    toCurrentScale(pageLayout.getPageHeight(page)),
                     page);
 
             canvas.translate(-translateX, -translateY);
@@ -769,38 +1063,38 @@ public class PDFView extends RelativeLayout {
 
     /**
      * Draw a given PagePart on the canvas
+     *
+     * @return true if part was drawn, false if it is not visible
      */
-    private void drawPart(Canvas canvas, PagePart part) {
+    private boolean drawPart(Canvas canvas, PagePart part) {
         // Can seem strange, but avoid lot of calls
         RectF pageRelativeBounds = part.getPageRelativeBounds();
         Bitmap renderedBitmap = part.getRenderedBitmap();
 
         if (renderedBitmap.isRecycled()) {
-            return;
+            return false;
         }
 
         // Move to the target page
-        float localTranslationX = 0;
-        float localTranslationY = 0;
-        if (swipeVertical) {
-            localTranslationY = calculatePageOffset(part.getUserPage());
-        } else {
-            localTranslationX = calculatePageOffset(part.getUserPage());
-        }
+        float localTranslationX = calculatePageX(part.getUserPage());
+        float localTranslationY = calculatePageY(part.getUserPage());
         canvas.translate(localTranslationX, localTranslationY);
 
-        Rect srcRect = new Rect(0, 0, renderedBitmap.getWidth(),
-                renderedBitmap.getHeight());
+        Rect srcRect = drawSrcRect;
+        srcRect.set(0, 0, renderedBitmap.getWidth(), renderedBitmap.getHeight());
 
-        float offsetX = toCurrentScale(pageRelativeBounds.left * optimalPageWidth);
-        float offsetY = toCurrentScale(pageRelativeBounds.top * optimalPageHeight);
-        float width = toCurrentScale(pageRelativeBounds.width() * optimalPageWidth);
-        float height = toCurrentScale(pageRelativeBounds.height() * optimalPageHeight);
+        float pageWidth = pageLayout.getPageWidth(part.getUserPage());
+        float pageHeight = pageLayout.getPageHeight(part.getUserPage());
+        float offsetX = toCurrentScale(pageRelativeBounds.left * pageWidth);
+        float offsetY = toCurrentScale(pageRelativeBounds.top * pageHeight);
+        float width = toCurrentScale(pageRelativeBounds.width() * pageWidth);
+        float height = toCurrentScale(pageRelativeBounds.height() * pageHeight);
 
         // If we use float values for this rectangle, there will be
         // a possible gap between page parts, especially when
         // the zoom level is high.
-        RectF dstRect = new RectF((int) offsetX, (int) offsetY,
+        RectF dstRect = drawDstRect;
+        dstRect.set((int) offsetX, (int) offsetY,
                 (int) (offsetX + width),
                 (int) (offsetY + height));
 
@@ -810,7 +1104,7 @@ public class PDFView extends RelativeLayout {
         if (translationX + dstRect.left >= getWidth() || translationX + dstRect.right <= 0 ||
                 translationY + dstRect.top >= getHeight() || translationY + dstRect.bottom <= 0) {
             canvas.translate(-localTranslationX, -localTranslationY);
-            return;
+            return false;
         }
 
         canvas.drawBitmap(renderedBitmap, srcRect, dstRect, paint);
@@ -822,48 +1116,92 @@ public class PDFView extends RelativeLayout {
 
         // Restore the canvas position
         canvas.translate(-localTranslationX, -localTranslationY);
-
+        return true;
     }
 
     /**
      * Load all the parts around the center of the screen,
      * taking into account X and Y offsets, zoom level, and
-     * the current page displayed
+     * the current page displayed.
+     * <p>
+     * Parts are loaded before the next frame is drawn, once no matter how many times
+     * this method was called since the last frame.
      */
     public void loadPages() {
-        if (optimalPageWidth == 0 || optimalPageHeight == 0 || renderingHandler == null) {
+        loadPagesScheduler.schedule();
+    }
+
+    private void performLoadPages() {
+        if (pageLayout == null || !pageLayout.isCalculated() || renderingHandler == null) {
             return;
         }
 
-        // Cancel all current tasks
-        renderingHandler.removeMessages(RenderingHandler.MSG_RENDER_TASK);
+        long startTime = onRenderMetricsListener != null ? System.nanoTime() : 0;
+        Util.beginTraceSection("PDFView load pages");
+        loadPagesPassCount++;
+
+        // Requested tasks get new priorities, the rest are cancelled if they are too far from the view
+        renderingHandler.startUpdate();
         cacheManager.makeANewSet();
 
         pagesLoader.loadPages();
+        renderingHandler.finishUpdate();
+        Util.endTraceSection();
+
+        if (onRenderMetricsListener != null) {
+            if (!renderingHandler.hasVisibleTasks()) {
+                waitingForVisiblePart = false;
+            } else if (!waitingForVisiblePart) {
+                waitingForVisiblePart = true;
+                visiblePartRequestTime = startTime;
+            }
+        }
         redraw();
     }
 
     /**
      * Called when the PDF is loaded
      */
-    void loadComplete(PdfDocument pdfDocument, int pageWidth, int pageHeight) {
+    void loadComplete(DocumentHandle document, int firstPage, int pageWidth, int pageHeight, String fingerprint,
+                      long openTime, boolean reused) {
         state = State.LOADED;
-        this.documentPageCount = pdfiumCore.getPageCount(pdfDocument);
+        loadingTask = null;
+        if (onRenderMetricsListener != null) {
+            onRenderMetricsListener.onDocumentOpened(openTime, reused);
+        }
+        this.documentPageCount = document.getPageCount();
 
-        this.pdfDocument = pdfDocument;
+        this.document = document;
+        this.documentFingerprint = fingerprint;
+        if (diskCacheSize > 0 && fingerprint != null) {
+            diskCache = DiskCache.getInstance(getContext());
+            diskCache.ensureMaxSize(diskCacheSize);
+        } else {
+            diskCache = null;
+        }
 
-        this.pageWidth = pageWidth;
-        this.pageHeight = pageHeight;
+        // Pages have the size of the first shown page until they are measured in the background
+        pageLayout = new PageLayout(documentPageCount, originalUserPages, pageWidth, pageHeight);
+        pageLayout.setPageSize(firstPage, pageWidth, pageHeight);
         calculateOptimalWidthAndHeight();
 
         pagesLoader = new PagesLoader(this);
 
-        if (!renderingHandlerThread.isAlive()) {
-            renderingHandlerThread.start();
+        Looper looper;
+        if (renderingEngine != null) {
+            renderingEngine.attach(this);
+            looper = renderingEngine.getLooper();
+        } else {
+            if (!renderingHandlerThread.isAlive()) {
+                renderingHandlerThread.start();
+            }
+            looper = renderingHandlerThread.getLooper();
         }
-        renderingHandler = new RenderingHandler(renderingHandlerThread.getLooper(),
-                this, pdfiumCore, pdfDocument);
+        renderingHandler = new RenderingHandler(looper, this, document, renderThreads, renderingEngine);
+        // the first page was opened when loading
+        renderingHandler.addOpenedPage(firstPage);
         renderingHandler.start();
+        renderingHandler.measurePages(firstPage);
 
         if (scrollHandle != null) {
             scrollHandle.setupLayout(this);
@@ -879,6 +1217,7 @@ public class PDFView extends RelativeLayout {
 
     void loadError(Throwable t) {
         state = State.ERROR;
+        loadingTask = null;
         recycle();
         invalidate();
         if (this.onErrorListener != null) {
@@ -899,11 +1238,23 @@ public class PDFView extends RelativeLayout {
      * @param part The created PagePart.
      */
     public void onBitmapRendered(PagePart part) {
+        onBitmapRendered(part, loadGeneration);
+    }
+
+    /**
+     * @param loadGeneration {@link #getLoadGeneration()} of the document the part was rendered from,
+     *                       the part is dropped if the document was recycled
+     */
+    void onBitmapRendered(PagePart part, int loadGeneration) {
+        if (loadGeneration != this.loadGeneration) {
+            bitmapPool.put(part.getRenderedBitmap());
+            return;
+        }
         // when it is first rendered part
         if (state == State.LOADED) {
             state = State.SHOWN;
             if (onRenderListener != null) {
-                onRenderListener.onInitiallyRendered(getPageCount(), optimalPageWidth, optimalPageHeight);
+                onRenderListener.onInitiallyRendered(getPageCount(), getOptimalPageWidth(), getOptimalPageHeight());
             }
         }
 
@@ -911,8 +1262,86 @@ public class PDFView extends RelativeLayout {
             cacheManager.cacheThumbnail(part);
         } else {
             cacheManager.cachePart(part);
+            if (waitingForVisiblePart && onRenderMetricsListener != null
+                    && getDistanceFromView(part.getUserPage(), part.getPageRelativeBounds()) == 0) {
+                waitingForVisiblePart = false;
+                onRenderMetricsListener.onFirstVisiblePart(System.nanoTime() - visiblePartRequestTime);
+            }
         }
         redraw();
+        tunePartSize();
+    }
+
+    /**
+     * Choose part size once per document, when enough parts were rendered.
+     * Changing the size means rendering visible parts again, so it's not changed later.
+     */
+    private void tunePartSize() {
+        if (!adaptivePartSize || partSizeTuned || !partSizeTuner.hasEnoughSamples()) {
+            return;
+        }
+        partSizeTuned = true;
+        float size = partSizeTuner.choosePartSize(getWidth(), getHeight(), partSize);
+        if (size != partSize) {
+            partSize = size;
+            loadPages();
+        }
+    }
+
+    /**
+     * Called when sizes of document pages were read in the background.
+     * Layout is recalculated and the point in the center of the view stays at the same place of the current page.
+     *
+     * @param firstPage document page of the first size
+     * @param widths    widths of consecutive pages, 0 if page size is unknown
+     * @param heights   heights of consecutive pages
+     */
+    void onPageSizesMeasured(int firstPage, int[] widths, int[] heights) {
+        if (pageLayout == null) {
+            return;
+        }
+        boolean changed = false;
+        for (int i = 0; i < widths.length; i++) {
+            changed |= pageLayout.setPageSize(firstPage + i, widths[i], heights[i]);
+        }
+        if (!changed || !pageLayout.isCalculated()) {
+            return;
+        }
+
+        float center = swipeVertical ? getHeight() / 2f : getWidth() / 2f;
+        float offset = swipeVertical ? currentYOffset : currentXOffset;
+        float pageLength = toCurrentScale(pageLayout.getPageLength(currentPage));
+        float positionInPage = (center - offset - calculatePageOffset(currentPage)) / pageLength;
+
+        calculateOptimalWidthAndHeight();
+
+        pageLength = toCurrentScale(pageLayout.getPageLength(currentPage));
+        offset = center - calculatePageOffset(currentPage) - positionInPage * pageLength;
+        if (swipeVertical) {
+            moveTo(currentXOffset, offset);
+        } else {
+            moveTo(offset, currentYOffset);
+        }
+        loadPages();
+    }
+
+    /**
+     * Called when sizes of all pages were passed to {@link #onPageSizesMeasured(int, int[], int[])}
+     */
+    void onAllPagesMeasured() {
+        if (onLoadProgressListener != null) {
+            onLoadProgressListener.onAllPagesMeasured();
+        }
+    }
+
+    /**
+     * Called when the table of contents was read in the background
+     */
+    void onTableOfContentsLoaded(List<Bookmark> tableOfContents) {
+        this.tableOfContents = tableOfContents;
+        if (onLoadProgressListener != null) {
+            onLoadProgressListener.onTableOfContentsLoaded(tableOfContents);
+        }
     }
 
     /**
@@ -949,38 +1378,26 @@ public class PDFView extends RelativeLayout {
      */
     private float calculateCenterOffsetForPage(int pageNb) {
         if (swipeVertical) {
-            float imageY = -(pageNb * optimalPageHeight + pageNb * spacingPx);
-            imageY += getHeight() / 2 - optimalPageHeight / 2;
+            float imageY = -pageLayout.getPageOffset(pageNb);
+            imageY += getHeight() / 2 - pageLayout.getPageHeight(pageNb) / 2;
             return imageY;
         } else {
-            float imageX = -(pageNb * optimalPageWidth + pageNb * spacingPx);
-            imageX += getWidth() / 2 - optimalPageWidth / 2;
+            float imageX = -pageLayout.getPageOffset(pageNb);
+            imageX += getWidth() / 2 - pageLayout.getPageWidth(pageNb) / 2;
             return imageX;
         }
     }
 
     /**
-     * Calculate the optimal width and height of a page
+     * Calculate the optimal width and height of every page
      * considering the area width and height
      */
     private void calculateOptimalWidthAndHeight() {
-        if (state == State.DEFAULT || getWidth() == 0) {
+        if (state == State.DEFAULT || pageLayout == null || getWidth() == 0) {
             return;
         }
 
-        float maxWidth = getWidth(), maxHeight = getHeight();
-        float w = pageWidth, h = pageHeight;
-        float ratio = w / h;
-        w = maxWidth;
-        h = (float) Math.floor(maxWidth / ratio);
-        if (h > maxHeight) {
-            h = maxHeight;
-            w = (float) Math.floor(maxHeight * ratio);
-        }
-
-        optimalPageWidth = w;
-        optimalPageHeight = h;
-
+        pageLayout.calculate(getWidth(), getHeight(), spacingPx, swipeVertical);
     }
 
     public void moveTo(float offsetX, float offsetY) {
@@ -998,7 +1415,7 @@ public class PDFView extends RelativeLayout {
     public void moveTo(float offsetX, float offsetY, boolean moveHandle) {
         if (swipeVertical) {
             // Check X offset
-            float scaledPageWidth = toCurrentScale(optimalPageWidth);
+            float scaledPageWidth = toCurrentScale(getOptimalPageWidth());
             if (scaledPageWidth < getWidth()) {
                 offsetX = getWidth() / 2 - scaledPageWidth / 2;
             } else {
@@ -1030,7 +1447,7 @@ public class PDFView extends RelativeLayout {
             }
         } else {
             // Check Y offset
-            float scaledPageHeight = toCurrentScale(optimalPageHeight);
+            float scaledPageHeight = toCurrentScale(getOptimalPageHeight());
             if (scaledPageHeight < getHeight()) {
                 offsetY = getHeight() / 2 - scaledPageHeight / 2;
             } else {
@@ -1077,36 +1494,117 @@ public class PDFView extends RelativeLayout {
         redraw();
     }
 
+    /**
+     * Calculate position of the page part on the view, in pixels
+     */
+    private void calculatePartRect(int userPage, RectF pageRelativeBounds, RectF out) {
+        float pageX = currentXOffset + calculatePageX(userPage);
+        float pageY = currentYOffset + calculatePageY(userPage);
+        float width = toCurrentScale(pageLayout.getPageWidth(userPage));
+        float height = toCurrentScale(pageLayout.getPageHeight(userPage));
+        out.set(pageX + pageRelativeBounds.left * width, pageY + pageRelativeBounds.top * height,
+                pageX + pageRelativeBounds.right * width, pageY + pageRelativeBounds.bottom * height);
+    }
+
+    /**
+     * @return distance in pixels between the page part and the nearest edge of the view,
+     * 0 if the part is visible
+     */
+    float getDistanceFromView(int userPage, RectF pageRelativeBounds) {
+        calculatePartRect(userPage, pageRelativeBounds, partRect);
+        float dx = Math.max(0, Math.max(-partRect.right, partRect.left - getWidth()));
+        float dy = Math.max(0, Math.max(-partRect.bottom, partRect.top - getHeight()));
+        return (float) Math.sqrt(dx * dx + dy * dy);
+    }
+
+    /**
+     * @return distance in pixels between centers of the page part and the view
+     */
+    float getDistanceFromViewCenter(int userPage, RectF pageRelativeBounds) {
+        calculatePartRect(userPage, pageRelativeBounds, partRect);
+        float dx = partRect.centerX() - getWidth() / 2f;
+        float dy = partRect.centerY() - getHeight() / 2f;
+        return (float) Math.sqrt(dx * dx + dy * dy);
+    }
+
     ScrollDir getScrollDir() {
         return scrollDir;
     }
 
+    void setScrollVelocity(float scrollVelocity) {
+        this.scrollVelocity = scrollVelocity;
+    }
+
+    float getScrollVelocity() {
+        return scrollVelocity;
+    }
+
     void loadPageByOffset() {
-        if (0 == getPageCount()) {
+        loadPageByOffset(true);
+    }
+
+    /**
+     * Like {@link #loadPageByOffset()}, but called on every frame of an animation,
+     * so parts are loaded at most once per {@link #getAnimationLoadInterval()}.
+     * Current page is updated on every frame.
+     */
+    void loadPageByOffsetDuringAnimation() {
+        long now = SystemClock.uptimeMillis();
+        boolean load = now - lastAnimationLoadTime >= animationLoadInterval;
+        if (load) {
+            lastAnimationLoadTime = now;
+        }
+        loadPageByOffset(load);
+    }
+
+    private void loadPageByOffset(boolean load) {
+        if (0 == getPageCount() || pageLayout == null) {
             return;
         }
 
-        float offset, optimal, screenCenter;
-        float spacingPerPage = spacingPx - (spacingPx / getPageCount());
+        float offset, screenCenter;
         if (swipeVertical) {
             offset = currentYOffset;
-            optimal = optimalPageHeight + spacingPerPage;
             screenCenter = ((float) getHeight()) / 2;
         } else {
             offset = currentXOffset;
-            optimal = optimalPageWidth + spacingPerPage;
             screenCenter = ((float) getWidth()) / 2;
         }
 
-        int page = (int) Math.floor((Math.abs(offset) + screenCenter) / toCurrentScale(optimal));
+        int page = pageLayout.getPageAtOffset(toRealScale(screenCenter - offset));
 
         if (page >= 0 && page <= getPageCount() - 1 && page != getCurrentPage()) {
-            showPage(page);
-        } else {
+            showPage(page, load);
+        } else if (load) {
             loadPages();
         }
     }
 
+    /**
+     * @return true if parts should be loaded at the destination of the current fling
+     */
+    boolean isLoadingFlingDestination() {
+        return flingAwareLoading && animationManager.isFlinging();
+    }
+
+    AnimationManager getAnimationManager() {
+        return animationManager;
+    }
+
+    /**
+     * @return X offset the current fling will stop at
+     */
+    float getFlingFinalXOffset() {
+        return animationManager.getFlingFinalX();
+    }
+
+    /**
+     * @return Y offset the current fling will stop at
+     */
+    float getFlingFinalYOffset() {
+        return animationManager.getFlingFinalY();
+    }
+
     int[] getFilteredUserPages() {
         return filteredUserPages;
     }
@@ -1139,6 +1637,10 @@ public class PDFView extends RelativeLayout {
      */
     public void zoomTo(float zoom) {
         this.zoom = zoom;
+        float scale = Math.max(zoom / renderZoom, renderZoom / zoom);
+        if (scale > renderScaleThreshold) {
+            renderZoom = findNearestZoomLevel(zoom);
+        }
     }
 
     /**
@@ -1172,12 +1674,13 @@ public class PDFView extends RelativeLayout {
      * @return true if whole document can displayed at once, false otherwise
      */
     public boolean documentFitsView() {
-        int pageCount = getPageCount();
-        int spacing = (pageCount - 1) * spacingPx;
+        if (pageLayout == null) {
+            return false;
+        }
         if (swipeVertical) {
-            return pageCount * optimalPageHeight + spacing < getHeight();
+            return pageLayout.getDocLength() < getHeight();
         } else {
-            return pageCount * optimalPageWidth + spacing < getWidth();
+            return pageLayout.getDocLength() < getWidth();
         }
     }
 
@@ -1195,7 +1698,7 @@ public class PDFView extends RelativeLayout {
             Log.e(TAG, "Cannot fit, document not rendered yet");
             return;
         }
-        zoomTo(getWidth() / optimalPageWidth);
+        zoomTo(getWidth() / getOptimalPageWidth());
         setPositionOffset(0);
     }
 
@@ -1223,16 +1726,69 @@ public class PDFView extends RelativeLayout {
         return zoom;
     }
 
+    /**
+     * Parts are rendered at discrete zoom levels and drawn scaled. The level changes to the one nearest to the zoom
+     * only when parts would be scaled by more than {@link Configurator#renderScaleThreshold(float)},
+     * so small zoom changes don't render new parts.
+     *
+     * @return zoom level parts are rendered at
+     */
+    public float getRenderZoom() {
+        return renderZoom;
+    }
+
+    /**
+     * @return zoom level nearest to the given zoom, compared by ratio
+     */
+    private float findNearestZoomLevel(float zoom) {
+        if (renderZoomLevels == null || renderZoomLevels.length == 0) {
+            double ratio = Constants.ZOOM_LEVEL_RATIO;
+            long level = Math.round(Math.log(zoom) / Math.log(ratio));
+            return (float) Math.pow(ratio, level);
+        }
+        float nearest = renderZoomLevels[0];
+        for (float level : renderZoomLevels) {
+            if (Math.abs(Math.log(level / zoom)) < Math.abs(Math.log(nearest / zoom))) {
+                nearest = level;
+            }
+        }
+        return nearest;
+    }
+
     public boolean isZooming() {
         return zoom != minZoom;
     }
 
+    /**
+     * @return width of the widest page fitted to the view, without zoom
+     */
     public float getOptimalPageWidth() {
-        return optimalPageWidth;
+        return pageLayout != null ? pageLayout.getMaxPageWidth() : 0;
     }
 
+    /**
+     * @return height of the highest page fitted to the view, without zoom
+     */
     public float getOptimalPageHeight() {
-        return optimalPageHeight;
+        return pageLayout != null ? pageLayout.getMaxPageHeight() : 0;
+    }
+
+    /**
+     * @return width of the given page fitted to the view, without zoom
+     */
+    public float getOptimalPageWidth(int page) {
+        return pageLayout != null ? pageLayout.getPageWidth(page) : 0;
+    }
+
+    /**
+     * @return height of the given page fitted to the view, without zoom
+     */
+    public float getOptimalPageHeight(int page) {
+        return pageLayout != null ? pageLayout.getPageHeight(page) : 0;
+    }
+
+    PageLayout getPageLayout() {
+        return pageLayout;
     }
 
     private void setDefaultPage(int defaultPage) {
@@ -1346,22 +1902,258 @@ public class PDFView extends RelativeLayout {
         return invalidPageColor;
     }
 
+    private void setRenderThreads(int renderThreads) {
+        this.renderThreads = Math.max(1, renderThreads);
+    }
+
+    public int getRenderThreads() {
+        return renderThreads;
+    }
+
+    private void setRenderKeepAliveDistance(float renderKeepAliveDistance) {
+        this.renderKeepAliveDistance = renderKeepAliveDistance;
+    }
+
+    public float getRenderKeepAliveDistance() {
+        return renderKeepAliveDistance;
+    }
+
+    private void setPartSize(float partSize) {
+        this.partSize = partSize;
+    }
+
+    /**
+     * @return size of rendered parts in pixels, chosen from rendering times when part size is adaptive,
+     * can be persisted and passed to {@link Configurator#partSize(float)}
+     */
+    public float getPartSize() {
+        return partSize;
+    }
+
+    private void setThumbnailRatio(float thumbnailRatio) {
+        this.thumbnailRatio = thumbnailRatio;
+    }
+
+    public float getThumbnailRatio() {
+        return thumbnailRatio;
+    }
+
+    private void setPreloadCount(int preloadCount) {
+        this.preloadCount = preloadCount;
+    }
+
+    public int getPreloadCount() {
+        return preloadCount;
+    }
+
+    private void setMaxOpenPages(int maxOpenPages) {
+        this.maxOpenPages = Math.max(1, maxOpenPages);
+    }
+
+    public int getMaxOpenPages() {
+        return maxOpenPages;
+    }
+
+    private void setAdaptivePartSize(boolean adaptivePartSize) {
+        this.adaptivePartSize = adaptivePartSize;
+    }
+
+    public boolean isAdaptivePartSize() {
+        return adaptivePartSize;
+    }
+
+    /**
+     * @return measured rendering time of a megapixel in nanoseconds, 0 if not known yet
+     */
+    public float getRenderTimePerMegapixel() {
+        return partSizeTuner.getTimePerMegapixel();
+    }
+
+    /**
+     * @return measured rendering time of a part which doesn't depend on its size, in nanoseconds
+     */
+    public float getRenderTimePerPart() {
+        return partSizeTuner.getTimePerPart();
+    }
+
+    private void setFlingAwareLoading(boolean flingAwareLoading) {
+        this.flingAwareLoading = flingAwareLoading;
+    }
+
+    public boolean isFlingAwareLoading() {
+        return flingAwareLoading;
+    }
+
+    private void setAnimationLoadInterval(long animationLoadInterval) {
+        this.animationLoadInterval = animationLoadInterval;
+    }
+
+    public long getAnimationLoadInterval() {
+        return animationLoadInterval;
+    }
+
+    private void setCacheSize(long cacheSize) {
+        this.cacheSize = cacheSize;
+        cacheManager.setMaxSize(cacheSize);
+    }
+
+    /**
+     * @return cache size configured for the view, the actual maximum may be lower when sharing a {@link RenderingEngine}
+     */
+    long getConfiguredCacheSize() {
+        return cacheSize;
+    }
+
+    /**
+     * @return maximum size of the cache of rendered parts, in bytes
+     */
+    public long getCacheMaxSize() {
+        return cacheManager.getMaxSize();
+    }
+
+    /**
+     * @return bytes currently used by the cache of rendered parts
+     */
+    public long getCacheSize() {
+        return cacheManager.getSize();
+    }
+
+    /**
+     * @return the highest number of bytes used by the cache of rendered parts, useful for choosing the cache size
+     */
+    public long getCachePeakSize() {
+        return cacheManager.getPeakSize();
+    }
+
+    private void setBitmapPoolSize(long bitmapPoolSize) {
+        bitmapPool.setMaxSize(bitmapPoolSize);
+    }
+
+    /**
+     * @return number of rendered parts which reused a pooled bitmap
+     */
+    public int getBitmapPoolHitCount() {
+        return bitmapPool.getHitCount();
+    }
+
+    /**
+     * @return number of rendered parts which needed a newly allocated bitmap
+     */
+    public int getBitmapPoolMissCount() {
+        return bitmapPool.getMissCount();
+    }
+
+    private void setRenderZoomLevels(float[] renderZoomLevels) {
+        if (renderZoomLevels != null) {
+            renderZoomLevels = renderZoomLevels.clone();
+            Arrays.sort(renderZoomLevels);
+        }
+        this.renderZoomLevels = renderZoomLevels;
+    }
+
+    private void setRenderScaleThreshold(float renderScaleThreshold) {
+        this.renderScaleThreshold = Math.max(1f, renderScaleThreshold);
+    }
+
+    public float getRenderScaleThreshold() {
+        return renderScaleThreshold;
+    }
+
+    private void setRenderingEngine(RenderingEngine renderingEngine) {
+        this.renderingEngine = renderingEngine;
+    }
+
+    public RenderingEngine getRenderingEngine() {
+        return renderingEngine;
+    }
+
+    /**
+     * Prefer rendering and caching parts of this view over other views of the {@link RenderingEngine}.
+     * Called also when the view is touched.
+     */
+    public void requestRenderingFocus() {
+        if (renderingEngine != null) {
+            renderingEngine.setFocusedView(this);
+        }
+    }
+
+    private void setPageRenderer(PageRenderer pageRenderer) {
+        this.pageRenderer = pageRenderer;
+    }
+
+    private void setDiskCacheSize(long diskCacheSize) {
+        this.diskCacheSize = diskCacheSize;
+    }
+
+    String getDocumentFingerprint() {
+        return documentFingerprint;
+    }
+
+    /**
+     * @return number of rendered parts read from the disk cache, for all views
+     */
+    public int getDiskCacheHitCount() {
+        return diskCache != null ? diskCache.getHitCount() : 0;
+    }
+
+    /**
+     * @return number of parts which were not found in the disk cache and had to be rendered, for all views
+     */
+    public int getDiskCacheMissCount() {
+        return diskCache != null ? diskCache.getMissCount() : 0;
+    }
+
+    /**
+     * @return number of requested parts found in the cache of rendered parts
+     */
+    public int getCacheHitCount() {
+        return cacheManager.getHitCount();
+    }
+
+    /**
+     * @return number of requested parts which were not in the cache of rendered parts
+     */
+    public int getCacheMissCount() {
+        return cacheManager.getMissCount();
+    }
+
+    /**
+     * @return number of parts removed from the cache of rendered parts to make space for new ones
+     */
+    public int getCacheEvictionCount() {
+        return cacheManager.getEvictionCount();
+    }
+
+    /**
+     * @return number of passes which loaded parts around the view, at most one runs in a frame
+     * no matter how many times {@link #loadPages()} was called
+     */
+    public int getLoadPagesPassCount() {
+        return loadPagesPassCount;
+    }
+
     public boolean doRenderDuringScale() {
         return renderDuringScale;
     }
 
-    public PdfDocument.Meta getDocumentMeta() {
-        if (pdfDocument == null) {
+    public DocumentMeta getDocumentMeta() {
+        if (document == null) {
             return null;
         }
-        return pdfiumCore.getDocumentMeta(pdfDocument);
+        return document.getDocumentMeta();
     }
 
-    public List<PdfDocument.Bookmark> getTableOfContents() {
-        if (pdfDocument == null) {
+    /**
+     * @return table of contents, read on the calling thread if it wasn't read in the background yet
+     */
+    public List<Bookmark> getTableOfContents() {
+        if (document == null) {
             return new ArrayList<>();
         }
-        return pdfiumCore.getTableOfContents(pdfDocument);
+        if (tableOfContents != null) {
+            return tableOfContents;
+        }
+        return document.getTableOfContents();
     }
 
     /**
@@ -1436,6 +2228,12 @@ public class PDFView extends RelativeLayout {
 
         private OnPageErrorListener onPageErrorListener;
 
+        private OnRenderMetricsListener onRenderMetricsListener;
+
+        private OnLoadProgressListener onLoadProgressListener;
+
+        private Executor loadExecutor = null;
+
         private int defaultPage = 0;
 
         private boolean swipeHorizontal = false;
@@ -1452,6 +2250,38 @@ public class PDFView extends RelativeLayout {
 
         private int invalidPageColor = Color.WHITE;
 
+        private long cacheSize = Util.getDefaultCacheSize(getContext());
+
+        private long bitmapPoolSize = Util.getDefaultBitmapPoolSize(getContext());
+
+        private int renderThreads = 1;
+
+        private float renderKeepAliveDistance = 1f;
+
+        private float partSize = Constants.PART_SIZE;
+
+        private float thumbnailRatio = Constants.THUMBNAIL_RATIO;
+
+        private int preloadCount = Constants.PRELOAD_COUNT;
+
+        private int maxOpenPages = Constants.MAX_OPEN_PAGES;
+
+        private boolean adaptivePartSize = false;
+
+        private boolean flingAwareLoading = true;
+
+        private long animationLoadInterval = Constants.ANIMATION_LOAD_INTERVAL;
+
+        private long diskCacheSize = 0;
+
+        private PageRenderer pageRenderer = null;
+
+        private RenderingEngine renderingEngine = null;
+
+        private float[] renderZoomLevels = null;
+
+        private float renderScaleThreshold = Constants.RENDER_SCALE_THRESHOLD;
+
         private Configurator(DocumentSource documentSource) {
             this.documentSource = documentSource;
         }
@@ -1521,6 +2351,31 @@ public class PDFView extends RelativeLayout {
             return this;
         }
 
+        /**
+         * Receive times of rendering, drawing and cache statistics. Nothing is measured by default
+         */
+        public Configurator onRenderMetrics(OnRenderMetricsListener onRenderMetricsListener) {
+            this.onRenderMetricsListener = onRenderMetricsListener;
+            return this;
+        }
+
+        /**
+         * Receive phases of loading the document, before and after {@link OnLoadCompleteListener} is called
+         */
+        public Configurator onLoadProgress(OnLoadProgressListener onLoadProgressListener) {
+            this.onLoadProgressListener = onLoadProgressListener;
+            return this;
+        }
+
+        /**
+         * Executor opening the document. By default documents are opened on {@link Constants#LOAD_THREADS}
+         * threads shared by all views, instead of the executor of {@link android.os.AsyncTask}.
+         */
+        public Configurator loadExecutor(Executor loadExecutor) {
+            this.loadExecutor = loadExecutor;
+            return this;
+        }
+
         public Configurator defaultPage(int defaultPage) {
             this.defaultPage = defaultPage;
             return this;
@@ -1556,7 +2411,160 @@ public class PDFView extends RelativeLayout {
             return this;
         }
 
-        public void load() {
+        /**
+         * Maximum size of the cache of rendered parts, in bytes.
+         * By default it is a fraction of the memory class of the device, see {@link Constants.Cache#CACHE_MEMORY_FRACTION}
+         */
+        public Configurator cacheSize(long cacheSize) {
+            this.cacheSize = cacheSize;
+            return this;
+        }
+
+        /**
+         * Maximum size in bytes of bitmaps kept for reuse after removing rendered parts from the cache.
+         * By default it is a fraction of the memory class of the device, see {@link Constants.Cache#BITMAP_POOL_MEMORY_FRACTION}
+         */
+        public Configurator bitmapPoolSize(long bitmapPoolSize) {
+            this.bitmapPoolSize = bitmapPoolSize;
+            return this;
+        }
+
+        /**
+         * Number of threads rendering parts, default 1. With more threads parts are rendered
+         * out of order. Pdfium makes one native call at a time in the whole process, so with
+         * the default renderer only reading the disk cache and preparing bitmaps overlap,
+         * renderers which are thread safe render in parallel.
+         */
+        public Configurator renderThreads(int renderThreads) {
+            this.renderThreads = renderThreads;
+            return this;
+        }
+
+        /**
+         * Parts waiting for rendering are not cancelled when the view moves, until they are further
+         * from the view than given distance, measured in view sizes. Default 1.
+         */
+        public Configurator renderKeepAliveDistance(float renderKeepAliveDistance) {
+            this.renderKeepAliveDistance = renderKeepAliveDistance;
+            return this;
+        }
+
+        /**
+         * Size of rendered parts in pixels, default {@link Constants#PART_SIZE}. Smaller parts show up sooner,
+         * bigger parts render the whole view faster
+         */
+        public Configurator partSize(float partSize) {
+            this.partSize = partSize;
+            return this;
+        }
+
+        /**
+         * Size of thumbnails relative to the page size, between 0 and 1, default {@link Constants#THUMBNAIL_RATIO}
+         */
+        public Configurator thumbnailRatio(float thumbnailRatio) {
+            this.thumbnailRatio = thumbnailRatio;
+            return this;
+        }
+
+        /**
+         * Number of rows or columns of parts loaded ahead in the scroll direction,
+         * default {@link Constants#PRELOAD_COUNT}
+         */
+        public Configurator preloadCount(int preloadCount) {
+            this.preloadCount = preloadCount;
+            return this;
+        }
+
+        /**
+         * Maximum number of pages kept open, the least recently rendered ones are closed,
+         * default {@link Constants#MAX_OPEN_PAGES}. Should be bigger than the number of pages visible at once.
+         */
+        public Configurator maxOpenPages(int maxOpenPages) {
+            this.maxOpenPages = maxOpenPages;
+            return this;
+        }
+
+        /**
+         * Measure rendering times and choose the part size which renders the whole view fastest,
+         * starting from {@link #partSize(float)}. Size is chosen once per document, the chosen one
+         * is returned by {@link PDFView#getPartSize()}. Default false.
+         */
+        public Configurator adaptivePartSize(boolean adaptivePartSize) {
+            this.adaptivePartSize = adaptivePartSize;
+            return this;
+        }
+
+        /**
+         * During a fling, load thumbnails of visible pages and parts at the position where the fling stops,
+         * instead of parts at every position it passes. Default true.
+         */
+        public Configurator flingAwareLoading(boolean flingAwareLoading) {
+            this.flingAwareLoading = flingAwareLoading;
+            return this;
+        }
+
+        /**
+         * Minimum time in milliseconds between loading parts during scroll animations and flings,
+         * default {@link Constants#ANIMATION_LOAD_INTERVAL}. Parts are always loaded when the animation ends.
+         */
+        public Configurator animationLoadInterval(long animationLoadInterval) {
+            this.animationLoadInterval = animationLoadInterval;
+            return this;
+        }
+
+        /**
+         * Share rendering thread, workers and cache with other views using the same engine,
+         * e.g. {@link RenderingEngine#getInstance(Context)}. Cache size of the view is then limited
+         * to its quota of the engine's cache budget. By default the view renders on its own.
+         */
+        public Configurator renderingEngine(RenderingEngine renderingEngine) {
+            this.renderingEngine = renderingEngine;
+            return this;
+        }
+
+        /**
+         * Backend used to open and render the document, {@link PdfiumRenderer} by default
+         */
+        public Configurator renderer(PageRenderer pageRenderer) {
+            this.pageRenderer = pageRenderer;
+            return this;
+        }
+
+        /**
+         * Maximum size in bytes of rendered parts kept on disk, shared by all views. Parts are read from disk
+         * instead of rendering them again after reopening the document, also in a new process.
+         * Works for sources implementing {@link FingerprintSource}. Default 0, disabled.
+         * The cache takes the largest size any view was loaded with, a smaller size never trims parts of other views.
+         */
+        public Configurator diskCacheSize(long diskCacheSize) {
+            this.diskCacheSize = diskCacheSize;
+            return this;
+        }
+
+        /**
+         * Zoom levels parts can be rendered at. Parts are rendered at the level nearest to the zoom and drawn scaled.
+         * By default levels are powers of {@link Constants#ZOOM_LEVEL_RATIO}
+         */
+        public Configurator renderZoomLevels(float... renderZoomLevels) {
+            this.renderZoomLevels = renderZoomLevels;
+            return this;
+        }
+
+        /**
+         * Parts are rendered at another zoom level only when parts of the current one would be scaled
+         * by more than this factor, default {@link Constants#RENDER_SCALE_THRESHOLD}
+         */
+        public Configurator renderScaleThreshold(float renderScaleThreshold) {
+            this.renderScaleThreshold = renderScaleThreshold;
+            return this;
+        }
+
+        /**
+         * Recycle the view and start loading the document, any previous load of the view is cancelled
+         *
+         * @return task which can cancel the load
+         */
+        public LoadingTask load() {
             PDFView.this.recycle();
             PDFView.this.setOnDrawListener(onDrawListener);
             PDFView.this.setOnDrawAllListener(onDrawAllListener);
@@ -1565,6 +2573,9 @@ public class PDFView extends RelativeLayout {
             PDFView.this.setOnRenderListener(onRenderListener);
             PDFView.this.setOnTapListener(onTapListener);
             PDFView.this.setOnPageErrorListener(onPageErrorListener);
+            PDFView.this.setOnRenderMetricsListener(onRenderMetricsListener);
+            PDFView.this.setOnLoadProgressListener(onLoadProgressListener);
+            PDFView.this.setLoadExecutor(loadExecutor);
             PDFView.this.enableSwipe(enableSwipe);
             PDFView.this.enableDoubletap(enableDoubletap);
             PDFView.this.setDefaultPage(defaultPage);
@@ -1574,18 +2585,33 @@ public class PDFView extends RelativeLayout {
             PDFView.this.enableAntialiasing(antialiasing);
             PDFView.this.setSpacing(spacing);
             PDFView.this.setInvalidPageColor(invalidPageColor);
+            PDFView.this.setCacheSize(cacheSize);
+            PDFView.this.setBitmapPoolSize(bitmapPoolSize);
+            PDFView.this.setRenderThreads(renderThreads);
+            PDFView.this.setRenderKeepAliveDistance(renderKeepAliveDistance);
+            PDFView.this.setPartSize(partSize);
+            PDFView.this.setThumbnailRatio(thumbnailRatio);
+            PDFView.this.setPreloadCount(preloadCount);
+            PDFView.this.setMaxOpenPages(maxOpenPages);
+            PDFView.this.setAdaptivePartSize(adaptivePartSize);
+            PDFView.this.setFlingAwareLoading(flingAwareLoading);
+            PDFView.this.setAnimationLoadInterval(animationLoadInterval);
+            PDFView.this.setDiskCacheSize(diskCacheSize);
+            PDFView.this.setPageRenderer(pageRenderer);
+            PDFView.this.setRenderingEngine(renderingEngine);
+            PDFView.this.setRenderZoomLevels(renderZoomLevels);
+            PDFView.this.setRenderScaleThreshold(renderScaleThreshold);
             PDFView.this.dragPinchManager.setSwipeVertical(swipeVertical);
 
+            final LoadingTask task = new LoadingTask(PDFView.this, documentSource, password);
+            PDFView.this.loadingTask = task;
             PDFView.this.post(new Runnable() {
                 @Override
                 public void run() {
-                    if (pageNumbers != null) {
-                        PDFView.this.load(documentSource, password, onLoadCompleteListener, onErrorListener, pageNumbers);
-                    } else {
-                        PDFView.this.load(documentSource, password, onLoadCompleteListener, onErrorListener);
-                    }
+                    PDFView.this.load(task, onLoadCompleteListener, onErrorListener, pageNumbers);
                 }
             });
+            return task;
         }
     }
 }
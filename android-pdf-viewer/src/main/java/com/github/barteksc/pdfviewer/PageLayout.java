@@ -0,0 +1,264 @@
+/**
+ * Copyright 2017 Bartosz Schiller
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.barteksc.pdfviewer;
+
+/**
+ * Sizes and positions of all pages, at zoom 1.
+ * <p>
+ * Every page is fitted into the view separately, so pages of different sizes are displayed
+ * with their own aspect ratio. Pages are placed one after another along the scroll axis,
+ * separated by spacing, and centered on the other axis. Offsets of pages along the scroll axis
+ * are kept as a prefix sum, so finding page at given offset is a binary search.
+ * <p>
+ * Sizes of document pages may be unknown when the document is loaded. Until they are set
+ * with {@link #setPageSize(int, int, int)}, pages have the default size.
+ * <p>
+ * Pages are indexed the same way as in {@link PDFView}, i.e. by user page,
+ * and {@link #documentPage(int)} maps them to the document pages.
+ */
+class PageLayout {
+
+    private final int documentPageCount;
+
+    /**
+     * Document page for every user page, null if they are the same
+     */
+    private final int[] userPages;
+
+    private final int defaultWidth, defaultHeight;
+
+    /**
+     * Original sizes of document pages, 0 if not known yet
+     */
+    private final int[] documentPageWidths, documentPageHeights;
+
+    /**
+     * Fitted sizes of user pages
+     */
+    private final float[] pageWidths, pageHeights;
+
+    /**
+     * Offsets of user pages along the scroll axis, with one more element after the last page,
+     * so that <code>pageOffsets[i + 1] - pageOffsets[i]</code> is page length and spacing
+     */
+    private final float[] pageOffsets;
+
+    private float maxPageWidth, maxPageHeight;
+
+    private float viewWidth, viewHeight;
+
+    private float spacing;
+
+    private boolean vertical = true;
+
+    PageLayout(int documentPageCount, int[] userPages, int defaultWidth, int defaultHeight) {
+        this.documentPageCount = documentPageCount;
+        this.userPages = userPages;
+        this.defaultWidth = defaultWidth;
+        this.defaultHeight = defaultHeight;
+        documentPageWidths = new int[documentPageCount];
+        documentPageHeights = new int[documentPageCount];
+        int pageCount = getPageCount();
+        pageWidths = new float[pageCount];
+        pageHeights = new float[pageCount];
+        pageOffsets = new float[pageCount + 1];
+    }
+
+    int getPageCount() {
+        return userPages != null ? userPages.length : documentPageCount;
+    }
+
+    int getDocumentPageCount() {
+        return documentPageCount;
+    }
+
+    /**
+     * @return document page for given user page, -1 if it doesn't exist
+     */
+    int documentPage(int userPage) {
+        if (userPage < 0 || userPage >= getPageCount()) {
+            return -1;
+        }
+        int documentPage = userPages != null ? userPages[userPage] : userPage;
+        if (documentPage < 0 || documentPage >= documentPageCount) {
+            return -1;
+        }
+        return documentPage;
+    }
+
+    /**
+     * Set original size of document page, call {@link #calculate()} to update the layout
+     *
+     * @return true if size has changed
+     */
+    boolean setPageSize(int documentPage, int width, int height) {
+        if (documentPage < 0 || documentPage >= documentPageCount || width <= 0 || height <= 0) {
+            return false;
+        }
+        if (documentPageWidths[documentPage] == width && documentPageHeights[documentPage] == height) {
+            return false;
+        }
+        documentPageWidths[documentPage] = width;
+        documentPageHeights[documentPage] = height;
+        return true;
+    }
+
+    boolean isPageSizeKnown(int documentPage) {
+        return documentPageWidths[documentPage] > 0;
+    }
+
+    /**
+     * Set size of the view and layout parameters, then calculate the layout
+     */
+    void calculate(float viewWidth, float viewHeight, float spacing, boolean vertical) {
+        this.viewWidth = viewWidth;
+        this.viewHeight = viewHeight;
+        this.spacing = spacing;
+        this.vertical = vertical;
+        calculate();
+    }
+
+    /**
+     * Calculate fitted sizes and offsets of all pages, O(number of pages)
+     */
+    void calculate() {
+        maxPageWidth = 0;
+        maxPageHeight = 0;
+        float offset = 0;
+        int pageCount = getPageCount();
+        for (int i = 0; i < pageCount; i++) {
+            int documentPage = documentPage(i);
+            float w = defaultWidth, h = defaultHeight;
+            if (documentPage >= 0 && documentPageWidths[documentPage] > 0) {
+                w = documentPageWidths[documentPage];
+                h = documentPageHeights[documentPage];
+            }
+
+            // fit page into the view
+            float ratio = w / h;
+            w = viewWidth;
+            h = (float) Math.floor(viewWidth / ratio);
+            if (h > viewHeight) {
+                h = viewHeight;
+                w = (float) Math.floor(viewHeight * ratio);
+            }
+
+            pageWidths[i] = w;
+            pageHeights[i] = h;
+            maxPageWidth = Math.max(maxPageWidth, w);
+            maxPageHeight = Math.max(maxPageHeight, h);
+
+            pageOffsets[i] = offset;
+            offset += (vertical ? h : w) + spacing;
+        }
+        pageOffsets[pageCount] = offset;
+    }
+
+    boolean isCalculated() {
+        return viewWidth > 0 && viewHeight > 0;
+    }
+
+    float getPageWidth(int userPage) {
+        return pageWidths[limit(userPage)];
+    }
+
+    float getPageHeight(int userPage) {
+        return pageHeights[limit(userPage)];
+    }
+
+    /**
+     * @return page length along the scroll axis
+     */
+    float getPageLength(int userPage) {
+        return vertical ? getPageHeight(userPage) : getPageWidth(userPage);
+    }
+
+    /**
+     * @return the biggest page width
+     */
+    float getMaxPageWidth() {
+        return maxPageWidth;
+    }
+
+    /**
+     * @return the biggest page height
+     */
+    float getMaxPageHeight() {
+        return maxPageHeight;
+    }
+
+    /**
+     * @return offset of the page start along the scroll axis
+     */
+    float getPageOffset(int userPage) {
+        if (userPage <= 0) {
+            return 0;
+        }
+        return pageOffsets[Math.min(userPage, getPageCount())];
+    }
+
+    /**
+     * @return offset of the page on the axis perpendicular to the scroll axis, which centers the page
+     */
+    float getSecondaryPageOffset(int userPage) {
+        if (vertical) {
+            return (maxPageWidth - getPageWidth(userPage)) / 2;
+        } else {
+            return (maxPageHeight - getPageHeight(userPage)) / 2;
+        }
+    }
+
+    /**
+     * @return length of all pages with spacing between them
+     */
+    float getDocLength() {
+        int pageCount = getPageCount();
+        if (pageCount == 0) {
+            return 0;
+        }
+        return pageOffsets[pageCount] - spacing;
+    }
+
+    /**
+     * Find page at given offset along the scroll axis. Spacing after a page belongs to that page.
+     *
+     * @return page index, limited to existing pages
+     */
+    int getPageAtOffset(float offset) {
+        int pageCount = getPageCount();
+        if (pageCount == 0) {
+            return 0;
+        }
+        // last page which starts at or before the offset
+        int low = 0, high = pageCount - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (pageOffsets[mid] <= offset) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return low;
+    }
+
+    private int limit(int userPage) {
+        if (userPage < 0) {
+            return 0;
+        }
+        return Math.min(userPage, getPageCount() - 1);
+    }
+}
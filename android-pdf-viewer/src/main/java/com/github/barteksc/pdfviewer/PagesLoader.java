@@ -1,55 +1,46 @@
 package com.github.barteksc.pdfviewer;
 
 
+import android.graphics.Bitmap;
 import android.graphics.RectF;
-import android.util.Pair;
 
 import com.github.barteksc.pdfviewer.util.Constants;
 import com.github.barteksc.pdfviewer.util.MathUtils;
+import com.github.barteksc.pdfviewer.util.Util;
 
-import static com.github.barteksc.pdfviewer.util.Constants.Cache.CACHE_SIZE;
+import java.util.Arrays;
 
+
+/**
+ * Finds parts of pages which should be displayed and requests them from the {@link CacheManager}
+ * or the {@link RenderingHandler}. Pages in the view are found by binary search in {@link PageLayout},
+ * then every page is divided into its own grid of parts, depending on its size.
+ */
 class PagesLoader {
 
     private PDFView pdfView;
 
+    private PageLayout pageLayout;
 
     // variables set on every call to loadPages()
     private int cacheOrder;
-    private float scaledHeight;
-    private float scaledWidth;
-    private Pair<Integer, Integer> colsRows;
-    private float xOffset;
-    private float yOffset;
-    private float rowHeight;
-    private float colWidth;
-    private float pageRelativePartWidth;
-    private float pageRelativePartHeight;
-    private float partRenderWidth;
-    private float partRenderHeight;
-    private int thumbnailWidth;
-    private int thumbnailHeight;
-    private float scaledSpacingPx;
+    private float zoom;
+    private float renderZoom;
+    private float partSize;
+    private float thumbnailRatio;
+    private int preloadCount;
+    private int maxParts;
+    private int loaded;
+    /**
+     * Visible area on the axis perpendicular to the scroll axis, in the big strip coordinates
+     */
+    private float secondaryStart;
+    private float secondaryEnd;
     private final RectF thumbnailRect = new RectF(0, 0, 1, 1);
 
-    private class Holder {
-        int page;
-        int row;
-        int col;
-    }
-
     PagesLoader(PDFView pdfView) {
         this.pdfView = pdfView;
-    }
-
-    private Pair<Integer, Integer> getPageColsRows() {
-        float ratioX = 1f / pdfView.getOptimalPageWidth();
-        float ratioY = 1f / pdfView.getOptimalPageHeight();
-        final float partHeight = (Constants.PART_SIZE * ratioY) / pdfView.getZoom();
-        final float partWidth = (Constants.PART_SIZE * ratioX) / pdfView.getZoom();
-        final int nbRows = MathUtils.ceil(1f / partHeight);
-        final int nbCols = MathUtils.ceil(1f / partWidth);
-        return new Pair<>(nbCols, nbRows);
+        this.pageLayout = pdfView.getPageLayout();
     }
 
     private int documentPage(int userPage) {
@@ -69,37 +60,9 @@ class PagesLoader {
         return documentPage;
     }
 
-    /**
-     * @param offset
-     * @param endOffset, if true, then rounding up, else rounding down
-     * @return
-     */
-    private Holder getPageAndCoordsByOffset(float offset, boolean endOffset) {
-        Holder holder = new Holder();
-        float fixOffset = -MathUtils.max(offset, 0);
-        float row, col;
-
-        if (pdfView.isSwipeVertical()) {
-            holder.page = MathUtils.floor(fixOffset / (scaledHeight + scaledSpacingPx));
-            row = Math.abs(fixOffset - (scaledHeight + scaledSpacingPx) * holder.page) / rowHeight;
-            col = xOffset / colWidth;
-        } else {
-            holder.page = MathUtils.floor(fixOffset / (scaledWidth + scaledSpacingPx));
-            col = Math.abs(fixOffset - (scaledWidth + scaledSpacingPx) * holder.page) / colWidth;
-            row = yOffset / rowHeight;
-        }
-
-        if (endOffset) {
-            holder.row = MathUtils.ceil(row);
-            holder.col = MathUtils.ceil(col);
-        } else {
-            holder.row = MathUtils.floor(row);
-            holder.col = MathUtils.floor(col);
-        }
-        return holder;
-    }
-
     private void loadThumbnail(int userPage, int documentPage) {
+        int thumbnailWidth = (int) (pageLayout.getPageWidth(userPage) * thumbnailRatio);
+        int thumbnailHeight = (int) (pageLayout.getPageHeight(userPage) * thumbnailRatio);
         if (!pdfView.cacheManager.containsThumbnail(userPage, documentPage,
                 thumbnailWidth, thumbnailHeight, thumbnailRect)) {
             pdfView.renderingHandler.addRenderingTask(userPage, documentPage,
@@ -109,108 +72,76 @@ class PagesLoader {
     }
 
     /**
-     * @param number if < 0 then row (column) is above view, else row (column) is visible or below view
-     * @return
+     * Load parts of all pages between given offsets along the scroll axis, in the big strip coordinates
+     *
+     * @param withThumbnails whether to load thumbnails of the pages
      */
-    private int loadRelative(int number, int nbOfPartsLoadable, boolean belowView) {
-        int loaded = 0;
-        float newOffset;
-        if (pdfView.isSwipeVertical()) {
-            float rowsHeight = rowHeight * number + 1;
-            newOffset = pdfView.getCurrentYOffset() - (belowView ? pdfView.getHeight() : 0) - rowsHeight;
-        } else {
-            float colsWidth = colWidth * number;
-            newOffset = pdfView.getCurrentXOffset() - (belowView ? pdfView.getWidth() : 0) - colsWidth;
+    private void loadRange(float start, float end, boolean withThumbnails) {
+        int firstPage = pageLayout.getPageAtOffset(start / zoom);
+        int lastPage = pageLayout.getPageAtOffset(end / zoom);
+        for (int page = firstPage; page <= lastPage && loaded < maxParts; page++) {
+            int documentPage = documentPage(page);
+            if (documentPage < 0) {
+                continue;
+            }
+            if (withThumbnails) {
+                loadThumbnail(page, documentPage);
+            }
+            loadPage(page, documentPage, start, end);
         }
+    }
 
-        Holder holder = getPageAndCoordsByOffset(newOffset, false);
-        int documentPage = documentPage(holder.page);
-        if (documentPage < 0) {
-            return 0;
-        }
-        loadThumbnail(holder.page, documentPage);
+    /**
+     * Load parts of the page between given offsets along the scroll axis,
+     * with one additional part on each side of the visible area on the other axis
+     */
+    private void loadPage(int userPage, int documentPage, float start, float end) {
+        float pageWidth = pageLayout.getPageWidth(userPage);
+        float pageHeight = pageLayout.getPageHeight(userPage);
+        // the grid is made for the zoom level, so parts have partSize when rendered but not on the screen
+        int cols = MathUtils.ceil(pageWidth * renderZoom / partSize);
+        int rows = MathUtils.ceil(pageHeight * renderZoom / partSize);
+        float colWidth = pdfView.toCurrentScale(pageWidth) / cols;
+        float rowHeight = pdfView.toCurrentScale(pageHeight) / rows;
+        float pageOffset = pdfView.toCurrentScale(pageLayout.getPageOffset(userPage));
+        float secondaryOffset = pdfView.toCurrentScale(pageLayout.getSecondaryPageOffset(userPage));
 
+        int firstCol, lastCol, firstRow, lastRow;
         if (pdfView.isSwipeVertical()) {
-            int firstCol = MathUtils.floor(xOffset / colWidth);
-            firstCol = MathUtils.min(firstCol - 1, 0);
-            int lastCol = MathUtils.ceil((xOffset + pdfView.getWidth()) / colWidth);
-            lastCol = MathUtils.max(lastCol + 1, colsRows.first);
-            for (int col = firstCol; col <= lastCol; col++) {
-                if (loadCell(holder.page, documentPage, holder.row, col, pageRelativePartWidth, pageRelativePartHeight)) {
-                    loaded++;
-                }
-                if (loaded >= nbOfPartsLoadable) {
-                    return loaded;
-                }
-            }
+            firstRow = MathUtils.floor((start - pageOffset) / rowHeight);
+            lastRow = MathUtils.ceil((end - pageOffset) / rowHeight);
+            firstCol = MathUtils.floor((secondaryStart - secondaryOffset) / colWidth) - 1;
+            lastCol = MathUtils.ceil((secondaryEnd - secondaryOffset) / colWidth) + 1;
         } else {
-            int firstRow = MathUtils.floor(yOffset / rowHeight);
-            firstRow = MathUtils.min(firstRow - 1, 0);
-            int lastRow = MathUtils.ceil((yOffset + pdfView.getHeight()) / rowHeight);
-            lastRow = MathUtils.max(lastRow + 1, colsRows.second);
-            for (int row = firstRow; row <= lastRow; row++) {
-                if (loadCell(holder.page, documentPage, row, holder.col, pageRelativePartWidth, pageRelativePartHeight)) {
-                    loaded++;
-                }
-                if (loaded >= nbOfPartsLoadable) {
-                    return loaded;
-                }
-            }
+            firstCol = MathUtils.floor((start - pageOffset) / colWidth);
+            lastCol = MathUtils.ceil((end - pageOffset) / colWidth);
+            firstRow = MathUtils.floor((secondaryStart - secondaryOffset) / rowHeight) - 1;
+            lastRow = MathUtils.ceil((secondaryEnd - secondaryOffset) / rowHeight) + 1;
         }
+        firstCol = MathUtils.min(firstCol, 0);
+        lastCol = MathUtils.max(lastCol, cols);
+        firstRow = MathUtils.min(firstRow, 0);
+        lastRow = MathUtils.max(lastRow, rows);
 
-        return loaded;
-    }
-
-    public int loadVisible() {
-        int parts = 0;
-        Holder firstHolder, lastHolder;
-        if (pdfView.isSwipeVertical()) {
-            firstHolder = getPageAndCoordsByOffset(pdfView.getCurrentYOffset(), false);
-            lastHolder = getPageAndCoordsByOffset(pdfView.getCurrentYOffset() - pdfView.getHeight() + 1, true);
-            int visibleRows = 0;
-            if (firstHolder.page == lastHolder.page) {
-                visibleRows = lastHolder.row - firstHolder.row + 1;
-            } else {
-                visibleRows += colsRows.second - firstHolder.row;
-                for (int page = firstHolder.page + 1; page < lastHolder.page; page++) {
-                    visibleRows += colsRows.second;
+        float pageRelativePartWidth = 1f / cols;
+        float pageRelativePartHeight = 1f / rows;
+        float partRenderWidth = partSize / pageRelativePartWidth;
+        float partRenderHeight = partSize / pageRelativePartHeight;
+        for (int row = firstRow; row < lastRow; row++) {
+            for (int col = firstCol; col < lastCol; col++) {
+                if (loadCell(userPage, documentPage, row, col, pageRelativePartWidth, pageRelativePartHeight,
+                        partRenderWidth, partRenderHeight)) {
+                    loaded++;
                 }
-                visibleRows += lastHolder.row + 1;
-            }
-
-            for (int i = 0; i < visibleRows && parts < CACHE_SIZE; i++) {
-                parts += loadRelative(i, CACHE_SIZE - parts, false);
-            }
-        } else {
-            firstHolder = getPageAndCoordsByOffset(pdfView.getCurrentXOffset(), false);
-            lastHolder = getPageAndCoordsByOffset(pdfView.getCurrentXOffset() - pdfView.getWidth() + 1, true);
-            int visibleCols = 0;
-            if (firstHolder.page == lastHolder.page) {
-                visibleCols = lastHolder.col - firstHolder.col + 1;
-            } else {
-                visibleCols += colsRows.first - firstHolder.col;
-                for (int page = firstHolder.page + 1; page < lastHolder.page; page++) {
-                    visibleCols += colsRows.first;
+                if (loaded >= maxParts) {
+                    return;
                 }
-                visibleCols += lastHolder.col + 1;
-            }
-
-            for (int i = 0; i < visibleCols && parts < CACHE_SIZE; i++) {
-                parts += loadRelative(i, CACHE_SIZE - parts, false);
             }
         }
-        int prevDocPage = documentPage(firstHolder.page - 1);
-        if (prevDocPage >= 0) {
-            loadThumbnail(firstHolder.page - 1, prevDocPage);
-        }
-        int nextDocPage = documentPage(firstHolder.page + 1);
-        if (nextDocPage >= 0) {
-            loadThumbnail(firstHolder.page + 1, nextDocPage);
-        }
-        return parts;
     }
 
-    private boolean loadCell(int userPage, int documentPage, int row, int col, float pageRelativePartWidth, float pageRelativePartHeight) {
+    private boolean loadCell(int userPage, int documentPage, int row, int col, float pageRelativePartWidth, float pageRelativePartHeight,
+                             float partRenderWidth, float partRenderHeight) {
 
         float relX = pageRelativePartWidth * col;
         float relY = pageRelativePartHeight * row;
@@ -244,32 +175,143 @@ class PagesLoader {
         return false;
     }
 
+    /**
+     * Number of parts which can be loaded at once without exceeding the cache size
+     */
+    private int calculateMaxParts() {
+        Bitmap.Config config = pdfView.isBestQuality() ? Bitmap.Config.ARGB_8888 : Bitmap.Config.RGB_565;
+        long partByteCount = Util.getByteCount((int) partSize, (int) partSize, config);
+        long fitting = pdfView.cacheManager.getMaxSize() / partByteCount;
+        return (int) Math.max(1, Math.min(fitting, Integer.MAX_VALUE));
+    }
+
     public void loadPages() {
-        scaledHeight = pdfView.toCurrentScale(pdfView.getOptimalPageHeight());
-        scaledWidth = pdfView.toCurrentScale(pdfView.getOptimalPageWidth());
-        thumbnailWidth = (int) (pdfView.getOptimalPageWidth() * Constants.THUMBNAIL_RATIO);
-        thumbnailHeight = (int) (pdfView.getOptimalPageHeight() * Constants.THUMBNAIL_RATIO);
-        colsRows = getPageColsRows();
-        xOffset = -MathUtils.max(pdfView.getCurrentXOffset(), 0);
-        yOffset = -MathUtils.max(pdfView.getCurrentYOffset(), 0);
-        rowHeight = scaledHeight / colsRows.second;
-        colWidth = scaledWidth / colsRows.first;
-        pageRelativePartWidth = 1f / (float) colsRows.first;
-        pageRelativePartHeight = 1f / (float) colsRows.second;
-        partRenderWidth = Constants.PART_SIZE / pageRelativePartWidth;
-        partRenderHeight = Constants.PART_SIZE / pageRelativePartHeight;
+        zoom = pdfView.getZoom();
+        renderZoom = pdfView.getRenderZoom();
+        partSize = pdfView.getPartSize();
+        thumbnailRatio = pdfView.getThumbnailRatio();
+        preloadCount = pdfView.getPreloadCount();
+        maxParts = calculateMaxParts();
+        loaded = 0;
         cacheOrder = 1;
-        scaledSpacingPx = pdfView.toCurrentScale(pdfView.getSpacingPx());
-        scaledSpacingPx -= scaledSpacingPx / pdfView.getPageCount();
-        int loaded = loadVisible();
+
+        float start, end, viewLength;
+        if (pdfView.isSwipeVertical()) {
+            start = -pdfView.getCurrentYOffset();
+            viewLength = pdfView.getHeight();
+            secondaryStart = -pdfView.getCurrentXOffset();
+            secondaryEnd = secondaryStart + pdfView.getWidth();
+        } else {
+            start = -pdfView.getCurrentXOffset();
+            viewLength = pdfView.getWidth();
+            secondaryStart = -pdfView.getCurrentYOffset();
+            secondaryEnd = secondaryStart + pdfView.getHeight();
+        }
+        end = start + viewLength;
+        if (pdfView.isLoadingFlingDestination()) {
+            loadFlingDestination(start, end, viewLength);
+            return;
+        }
+        loadRange(start, end, true);
+        int visibleParts = loaded;
+
+        // thumbnails of pages next to the visible ones
+        int firstPage = pageLayout.getPageAtOffset(start / zoom);
+        int lastPage = pageLayout.getPageAtOffset(end / zoom);
+        int prevDocPage = documentPage(firstPage - 1);
+        if (prevDocPage >= 0) {
+            loadThumbnail(firstPage - 1, prevDocPage);
+        }
+        int nextDocPage = documentPage(lastPage + 1);
+        if (nextDocPage >= 0) {
+            loadThumbnail(lastPage + 1, nextDocPage);
+        }
+        openPagesAhead(firstPage, lastPage);
+
+        // parts have partSize when rendered, on the screen they are scaled from renderZoom to zoom
+        float preloadLength = preloadCount * partSize / renderZoom * zoom;
         if (pdfView.getScrollDir().equals(PDFView.ScrollDir.END)) { // if scrolling to end, preload next view
-            for (int i = 0; i < Constants.PRELOAD_COUNT && loaded < CACHE_SIZE; i++) {
-                loaded += loadRelative(i, loaded, true);
-            }
+            loadRange(end, end + preloadLength, false);
         } else { // if scrolling to start, preload previous view
-            for (int i = 0; i > -Constants.PRELOAD_COUNT && loaded < CACHE_SIZE; i--) {
-                loaded += loadRelative(i, loaded, false);
+            loadRange(start - preloadLength, start, false);
+        }
+
+        prefetch(start, viewLength, visibleParts);
+    }
+
+    /**
+     * Open pages after the visible ones in the scroll direction in the background,
+     * so that rendering them doesn't wait for parsing them
+     */
+    private void openPagesAhead(int firstPage, int lastPage) {
+        int count = Math.min(Constants.OPEN_PAGES_AHEAD, pdfView.getMaxOpenPages() - (lastPage - firstPage + 1));
+        boolean toStart = pdfView.getScrollDir().equals(PDFView.ScrollDir.START);
+        int[] pages = new int[Math.max(0, count)];
+        int found = 0;
+        for (int i = 1; i <= count; i++) {
+            int documentPage = documentPage(toStart ? firstPage - i : lastPage + i);
+            if (documentPage >= 0) {
+                pages[found++] = documentPage;
+            }
+        }
+        pdfView.renderingHandler.openPagesAhead(Arrays.copyOf(pages, found));
+    }
+
+    /**
+     * Load only thumbnails of visible pages and parts of the view at the position where the fling stops,
+     * parts at positions the fling passes would be visible only for a few frames. Thumbnails are rendered
+     * before parts outside of the view, so pages the fling passes are not blank.
+     */
+    private void loadFlingDestination(float start, float end, float viewLength) {
+        int firstPage = pageLayout.getPageAtOffset(start / zoom);
+        int lastPage = pageLayout.getPageAtOffset(end / zoom);
+        for (int page = firstPage; page <= lastPage; page++) {
+            int documentPage = documentPage(page);
+            if (documentPage >= 0) {
+                loadThumbnail(page, documentPage);
+            }
+        }
+
+        float destinationStart;
+        if (pdfView.isSwipeVertical()) {
+            destinationStart = -pdfView.getFlingFinalYOffset();
+            secondaryStart = -pdfView.getFlingFinalXOffset();
+            secondaryEnd = secondaryStart + pdfView.getWidth();
+        } else {
+            destinationStart = -pdfView.getFlingFinalXOffset();
+            secondaryStart = -pdfView.getFlingFinalYOffset();
+            secondaryEnd = secondaryStart + pdfView.getHeight();
+        }
+        loadRange(destinationStart, destinationStart + viewLength, true);
+    }
+
+    /**
+     * When scrolling fast, load thumbnails and then parts of the view where it is predicted to be
+     * when parts which are visible now are rendered. The distance adapts to the measured rendering time.
+     * Thumbnails are rendered before all parts outside of the view, prefetched parts are far from the view,
+     * so they are rendered after preloaded ones.
+     */
+    private void prefetch(float start, float viewLength, int visibleParts) {
+        float velocity = pdfView.getScrollVelocity();
+        if (Math.abs(velocity) < Constants.PREFETCH_MIN_VELOCITY || loaded >= maxParts) {
+            return;
+        }
+        float distance = Math.abs(velocity) * pdfView.renderingHandler.estimateRenderTime(Math.max(1, visibleParts));
+        distance = Math.max(viewLength, Math.min(distance, Constants.PREFETCH_MAX_VIEWS * viewLength));
+
+        float predictedStart = velocity > 0 ? start + distance : start - distance;
+        float docLength = pdfView.calculateDocLength();
+        predictedStart = Math.max(0, Math.min(predictedStart, docLength - viewLength));
+        float predictedEnd = predictedStart + viewLength;
+
+        int firstPage = pageLayout.getPageAtOffset(predictedStart / zoom);
+        int lastPage = pageLayout.getPageAtOffset(predictedEnd / zoom);
+        for (int page = firstPage; page <= lastPage; page++) {
+            int documentPage = documentPage(page);
+            if (documentPage >= 0) {
+                loadThumbnail(page, documentPage);
             }
         }
+        loadRange(predictedStart, predictedEnd, false);
     }
 }
@@ -0,0 +1,122 @@
+/**
+ * Copyright 2017 Bartosz Schiller
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.barteksc.pdfviewer;
+
+/**
+ * Chooses size of rendered parts from measured rendering times.
+ * <p>
+ * Rendering time of a part is modelled as a fixed cost per part plus a cost per pixel,
+ * both found by linear regression over recently rendered parts of different sizes.
+ * Rendering the view with parts of size <code>s</code> takes about
+ * <code>(w + s)(h + s) / s<sup>2</sup></code> parts, because parts at the edges stick out of the view,
+ * so small parts pay the fixed cost many times and big parts render many pixels which are not visible.
+ * The candidate size with the shortest time to render the whole view is chosen.
+ */
+class PartSizeTuner {
+
+    private static final float[] CANDIDATE_SIZES = {128, 192, 256, 384, 512, 768, 1024};
+
+    /**
+     * Number of rendered parts needed before a size is chosen
+     */
+    private static final int MIN_SAMPLES = 32;
+
+    /**
+     * Weight of older samples is multiplied by this factor with every new sample
+     */
+    private static final double DECAY = 0.98;
+
+    private int sampleCount = 0;
+
+    // weighted sums for linear regression of time (y) over number of pixels (x)
+    private double weight, sumX, sumY, sumXX, sumXY;
+
+    /**
+     * Add rendering time of one part, called from rendering threads
+     *
+     * @param pixels number of pixels of the part
+     * @param time   time in nanoseconds
+     */
+    synchronized void addSample(long pixels, long time) {
+        weight = weight * DECAY + 1;
+        sumX = sumX * DECAY + pixels;
+        sumY = sumY * DECAY + time;
+        sumXX = sumXX * DECAY + (double) pixels * pixels;
+        sumXY = sumXY * DECAY + (double) pixels * time;
+        sampleCount++;
+    }
+
+    synchronized boolean hasEnoughSamples() {
+        return sampleCount >= MIN_SAMPLES;
+    }
+
+    /**
+     * @return rendering time of a megapixel in nanoseconds, or 0 if it cannot be estimated yet
+     */
+    synchronized float getTimePerMegapixel() {
+        double denominator = weight * sumXX - sumX * sumX;
+        if (sampleCount < 2 || denominator <= 0) {
+            return 0;
+        }
+        double slope = (weight * sumXY - sumX * sumY) / denominator;
+        return (float) Math.max(0, slope * 1e6);
+    }
+
+    /**
+     * @return fixed rendering time of a part in nanoseconds, independent of its size
+     */
+    synchronized float getTimePerPart() {
+        if (sampleCount < 2) {
+            return 0;
+        }
+        double intercept = (sumY - getTimePerMegapixel() / 1e6 * sumX) / weight;
+        return (float) Math.max(0, intercept);
+    }
+
+    /**
+     * @return part size with the shortest estimated time of rendering the whole view,
+     * or <code>currentSize</code> if there are not enough measurements
+     */
+    float choosePartSize(float viewWidth, float viewHeight, float currentSize) {
+        double timePerPixel = getTimePerMegapixel() / 1e6;
+        double timePerPart = getTimePerPart();
+        if (!hasEnoughSamples() || timePerPixel <= 0) {
+            return currentSize;
+        }
+        float best = currentSize;
+        double bestTime = estimateViewTime(currentSize, viewWidth, viewHeight, timePerPixel, timePerPart);
+        for (float size : CANDIDATE_SIZES) {
+            double time = estimateViewTime(size, viewWidth, viewHeight, timePerPixel, timePerPart);
+            if (time < bestTime) {
+                best = size;
+                bestTime = time;
+            }
+        }
+        return best;
+    }
+
+    private static double estimateViewTime(float size, float viewWidth, float viewHeight,
+                                           double timePerPixel, double timePerPart) {
+        double width = viewWidth + size;
+        double height = viewHeight + size;
+        return width * height / (size * size) * timePerPart + width * height * timePerPixel;
+    }
+
+    synchronized void reset() {
+        sampleCount = 0;
+        weight = sumX = sumY = sumXX = sumXY = 0;
+    }
+}
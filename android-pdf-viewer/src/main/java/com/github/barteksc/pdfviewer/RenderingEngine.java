@@ -0,0 +1,186 @@
+/**
+ * Copyright 2017 Bartosz Schiller
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.barteksc.pdfviewer;
+
+import android.content.Context;
+import android.os.HandlerThread;
+import android.os.Looper;
+
+import com.github.barteksc.pdfviewer.util.Util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Rendering resources shared by {@link PDFView}s, set with <code>Configurator#renderingEngine()</code>.
+ * <p>
+ * Views using the same engine render on one thread, or on one pool of workers when they use more than
+ * one rendering thread, and take turns in rendering their parts. The focused view, see
+ * {@link #setFocusedView(PDFView)}, renders more parts per turn. Cache of every view is limited to a quota
+ * of the engine's cache budget, the focused view gets a bigger one. Opened documents are shared
+ * by all views through the {@link DocumentPool}.
+ * <p>
+ * Methods are called on the UI thread.
+ */
+public class RenderingEngine {
+
+    private static RenderingEngine instance;
+
+    private final HandlerThread thread = new HandlerThread("PDF renderer");
+
+    private ThreadPoolExecutor workers;
+
+    private final List<PDFView> views = new ArrayList<>();
+
+    private PDFView focusedView;
+
+    private long cacheBudget;
+
+    private int focusedViewWeight = 3;
+
+    /**
+     * @return engine shared by the whole application
+     */
+    public static synchronized RenderingEngine getInstance(Context context) {
+        if (instance == null) {
+            instance = new RenderingEngine(Util.getDefaultCacheSize(context));
+        }
+        return instance;
+    }
+
+    /**
+     * @param cacheBudget size in bytes of caches of all views together
+     */
+    public RenderingEngine(long cacheBudget) {
+        this.cacheBudget = cacheBudget;
+    }
+
+    /**
+     * Set size in bytes of caches of all views together, by default the default cache size of one view
+     */
+    public void setCacheBudget(long cacheBudget) {
+        this.cacheBudget = cacheBudget;
+        updateQuotas();
+    }
+
+    public long getCacheBudget() {
+        return cacheBudget;
+    }
+
+    /**
+     * Set how many times bigger cache quota and share of rendering the focused view gets, default 3
+     */
+    public void setFocusedViewWeight(int focusedViewWeight) {
+        this.focusedViewWeight = Math.max(1, focusedViewWeight);
+        updateQuotas();
+    }
+
+    public int getFocusedViewWeight() {
+        return focusedViewWeight;
+    }
+
+    /**
+     * Prefer rendering and caching parts of given view. Views get focus also when touched.
+     */
+    public void setFocusedView(PDFView view) {
+        if (focusedView != view) {
+            focusedView = view;
+            updateQuotas();
+        }
+    }
+
+    public PDFView getFocusedView() {
+        return focusedView;
+    }
+
+    /**
+     * @return number of parts the view renders in one turn
+     */
+    int getTasksPerTurn(PDFView view) {
+        return view == focusedView ? focusedViewWeight : 1;
+    }
+
+    Looper getLooper() {
+        synchronized (thread) {
+            if (!thread.isAlive()) {
+                thread.start();
+            }
+        }
+        return thread.getLooper();
+    }
+
+    /**
+     * @return pool of workers with at least given number of threads
+     */
+    synchronized ExecutorService getWorkers(int threads) {
+        if (workers == null) {
+            workers = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                    new LinkedBlockingQueue<Runnable>(), new WorkerThreadFactory());
+        } else if (workers.getMaximumPoolSize() < threads) {
+            workers.setMaximumPoolSize(threads);
+            workers.setCorePoolSize(threads);
+        }
+        return workers;
+    }
+
+    void attach(PDFView view) {
+        if (!views.contains(view)) {
+            views.add(view);
+            updateQuotas();
+        }
+    }
+
+    void detach(PDFView view) {
+        if (views.remove(view)) {
+            if (focusedView == view) {
+                focusedView = null;
+            }
+            updateQuotas();
+        }
+    }
+
+    /**
+     * Split the cache budget between views, the focused view gets {@link #focusedViewWeight} shares.
+     * A quota never raises the cache size configured for the view.
+     */
+    private void updateQuotas() {
+        int shares = 0;
+        for (PDFView view : views) {
+            shares += view == focusedView ? focusedViewWeight : 1;
+        }
+        for (PDFView view : views) {
+            int viewShares = view == focusedView ? focusedViewWeight : 1;
+            long quota = cacheBudget * viewShares / shares;
+            view.cacheManager.setMaxSize(Math.min(view.getConfiguredCacheSize(), quota));
+        }
+    }
+
+    private static class WorkerThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger count = new AtomicInteger(1);
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            return new Thread(runnable, "PDF renderer #" + count.getAndIncrement());
+        }
+    }
+}
@@ -16,8 +16,6 @@
 package com.github.barteksc.pdfviewer;
 
 import android.graphics.Bitmap;
-import android.graphics.Matrix;
-import android.graphics.Rect;
 import android.graphics.RectF;
 import android.os.Handler;
 import android.os.Looper;
@@ -25,50 +23,559 @@ import android.os.Message;
 import android.util.SparseBooleanArray;
 
 import com.github.barteksc.pdfviewer.exception.PageRenderingException;
+import com.github.barteksc.pdfviewer.listener.OnRenderMetricsListener;
+import com.github.barteksc.pdfviewer.model.Bookmark;
 import com.github.barteksc.pdfviewer.model.PagePart;
-import com.shockwave.pdfium.PdfDocument;
-import com.shockwave.pdfium.PdfiumCore;
+import com.github.barteksc.pdfviewer.model.PagePartKey;
+import com.github.barteksc.pdfviewer.renderer.BitmapTarget;
+import com.github.barteksc.pdfviewer.renderer.DocumentHandle;
+import com.github.barteksc.pdfviewer.util.Constants;
+import com.github.barteksc.pdfviewer.util.Util;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
- * A {@link Handler} that will process incoming {@link RenderingTask} messages
+ * A {@link Handler} that will process queued {@link RenderingTask}s
  * and alert {@link PDFView#onBitmapRendered(PagePart)} when the portion of the
  * PDF is ready to render.
+ * <p>
+ * Tasks are kept in a priority queue. Visible parts are rendered first, starting from the center
+ * of the view, then thumbnails, so pages scrolled or flung into the view are never blank,
+ * and parts outside of the view at the end. Every {@link PDFView#loadPages()}
+ * is wrapped in {@link #startUpdate()} and {@link #finishUpdate()}, tasks requested again get new priorities
+ * and tasks not requested anymore are cancelled only when they are further from the view than
+ * {@link PDFView#getRenderKeepAliveDistance()}.
+ * <p>
+ * With more than one rendering thread, tasks are handed over to a pool of workers,
+ * but only when a worker is free, so queued tasks can still be reprioritized or cancelled.
+ * With a {@link RenderingEngine}, the thread and the workers are shared with other views,
+ * each message renders or hands over {@link RenderingEngine#getTasksPerTurn(PDFView)} tasks.
+ * Pdfium serializes all native calls on one global lock, so with {@link com.github.barteksc.pdfviewer.renderer.PdfiumRenderer}
+ * workers overlap only reading the disk cache and preparing bitmaps, other renderers may render in parallel.
+ * <p>
+ * When there is nothing to render, sizes of pages are read in batches and passed to
+ * {@link PDFView#onPageSizesMeasured(int, int[], int[])}, starting from the page shown first and
+ * alternating after and before it. The table of contents is read when all pages are measured.
+ * <p>
+ * Pages are opened when they are first rendered, or in batches ahead of the visible pages with
+ * {@link #openPagesAhead(int[])}. At most {@link PDFView#getMaxOpenPages()} pages are kept open,
+ * the least recently rendered pages which are not being rendered are closed first.
  */
 class RenderingHandler extends Handler {
     /**
-     * {@link Message#what} kind of message this handler processes.
+     * {@link Message#what} kind of message this handler processes, each one takes
+     * the task with the highest priority from the queue.
      */
     static final int MSG_RENDER_TASK = 1;
 
+    /**
+     * {@link Message#what} kind of message which measures the next batch of pages
+     */
+    static final int MSG_MEASURE_PAGES = 2;
+
+    /**
+     * {@link Message#what} kind of message which opens pages given in {@link Message#obj}
+     */
+    static final int MSG_OPEN_PAGES = 3;
+
+    /**
+     * Priority bands, tasks from lower bands are rendered first
+     */
+    private static final int BAND_VISIBLE = 0;
+    private static final int BAND_THUMBNAIL = 1;
+    private static final int BAND_HIDDEN = 2;
+
     private static final String TAG = RenderingHandler.class.getName();
 
-    private PdfiumCore pdfiumCore;
-    private PdfDocument pdfDocument;
+    private DocumentHandle document;
 
     private PDFView pdfView;
 
-    private RectF renderBounds = new RectF();
-    private Rect roundedRenderBounds = new Rect();
-    private Matrix renderMatrix = new Matrix();
-    private final SparseBooleanArray openedPages = new SparseBooleanArray();
-    private boolean running = false;
+    /**
+     * Cache of rendered parts on disk, null if disabled
+     */
+    private final DiskCache diskCache;
+
+    /**
+     * Identity of the document in the disk cache
+     */
+    private final String documentFingerprint;
+
+    /**
+     * Receives rendering times, null if nothing should be measured
+     */
+    private final OnRenderMetricsListener metricsListener;
+
+    /**
+     * Opened pages with number of tasks rendering them, the least recently rendered first.
+     * Guarded by itself.
+     */
+    private final LinkedHashMap<Integer, Integer> openedPages = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * Pages which cannot be opened, guarded by {@link #openedPages}
+     */
+    private final SparseBooleanArray brokenPages = new SparseBooleanArray();
+
+    private final int maxOpenPages;
+
+    /**
+     * False when the document cannot close single pages, guarded by {@link #openedPages}
+     */
+    private boolean closingPages = true;
+
+    private volatile boolean running = false;
+
+    /**
+     * {@link PDFView#getLoadGeneration()} of the document this handler renders
+     */
+    private final int loadGeneration;
+
+    /**
+     * Workers rendering parts, null when rendering on the handler thread
+     */
+    private final ExecutorService workers;
+
+    /**
+     * Engine shared with other views, null if the view renders on its own
+     */
+    private final RenderingEngine engine;
+
+    /**
+     * Permits for free workers, all of them are taken when the document is closed
+     */
+    private final Semaphore freeWorkers;
+
+    private final int threads;
 
-    RenderingHandler(Looper looper, PDFView pdfView, PdfiumCore pdfiumCore, PdfDocument pdfDocument) {
+    /**
+     * True when the document waits for workers to finish before closing
+     */
+    private volatile boolean closePending = false;
+
+    /**
+     * Moving average of the time of rendering one part by Pdfium, in nanoseconds, 0 until the first part is rendered
+     */
+    private volatile long averageRenderTime = 0;
+
+    /**
+     * Tasks waiting for rendering, ordered by priority
+     */
+    private final TreeSet<RenderingTask> queue = new TreeSet<>(new RenderingTaskComparator());
+
+    /**
+     * Queued and currently rendered tasks, guarded by {@link #queue}
+     */
+    private final Map<PagePartKey, RenderingTask> tasks = new HashMap<>();
+
+    /**
+     * Incremented on every {@link #startUpdate()}, guarded by {@link #queue}
+     */
+    private int generation = 0;
+
+    /**
+     * Order of tasks with equal priority, guarded by {@link #queue}
+     */
+    private long sequence = 0;
+
+    /**
+     * Batch of pages measured first, set before measuring starts
+     */
+    private int firstBatchToMeasure = 0;
+
+    /**
+     * Number of measured batches, used only on the handler thread
+     */
+    private int measuredBatches = 0;
+
+    /**
+     * Counter choosing the next batch to measure, used only on the handler thread
+     */
+    private int measureStep = 0;
+
+    /**
+     * True when measuring waits until there is nothing to render, set on the handler thread
+     */
+    private volatile boolean measuringPending = false;
+
+    /**
+     * Pages to open which wait until no visible part is queued, set on the handler thread
+     */
+    private volatile int[] pendingOpenPages;
+
+    RenderingHandler(Looper looper, PDFView pdfView, DocumentHandle document) {
+        this(looper, pdfView, document, 1);
+    }
+
+    RenderingHandler(Looper looper, PDFView pdfView, DocumentHandle document, int threads) {
+        this(looper, pdfView, document, threads, null);
+    }
+
+    /**
+     * @param engine engine sharing the looper and workers with other views, or null to create own workers
+     */
+    RenderingHandler(Looper looper, PDFView pdfView, DocumentHandle document, int threads, RenderingEngine engine) {
         super(looper);
+        this.engine = engine;
         this.pdfView = pdfView;
-        this.pdfiumCore = pdfiumCore;
-        this.pdfDocument = pdfDocument;
+        this.document = document;
+        this.diskCache = pdfView.diskCache;
+        this.documentFingerprint = pdfView.getDocumentFingerprint();
+        this.metricsListener = pdfView.getOnRenderMetricsListener();
+        this.maxOpenPages = pdfView.getMaxOpenPages();
+        this.loadGeneration = pdfView.getLoadGeneration();
+        this.threads = Math.max(1, threads);
+        if (threads > 1) {
+            workers = engine != null ? engine.getWorkers(threads)
+                    : Executors.newFixedThreadPool(threads, new WorkerThreadFactory());
+            freeWorkers = new Semaphore(threads);
+        } else {
+            workers = null;
+            freeWorkers = null;
+        }
     }
 
+    /**
+     * Start a new set of tasks, must be called on the UI thread
+     */
+    void startUpdate() {
+        synchronized (queue) {
+            generation++;
+        }
+    }
+
+    /**
+     * Queue a task, or update priority of already queued one. Must be called on the UI thread,
+     * between {@link #startUpdate()} and {@link #finishUpdate()}.
+     */
     void addRenderingTask(int userPage, int page, float width, float height, RectF bounds, boolean thumbnail, int cacheOrder, boolean bestQuality, boolean annotationRendering) {
-        RenderingTask task = new RenderingTask(width, height, bounds, userPage, page, thumbnail, cacheOrder, bestQuality, annotationRendering);
-        Message msg = obtainMessage(MSG_RENDER_TASK, task);
-        sendMessage(msg);
+        PagePartKey key = new PagePartKey(userPage, page, width, height, bounds, thumbnail);
+        synchronized (queue) {
+            RenderingTask task = tasks.get(key);
+            if (task == null) {
+                task = new RenderingTask(width, height, bounds, userPage, page, thumbnail, cacheOrder, bestQuality, annotationRendering);
+                task.key = key;
+                task.zoom = pdfView.getRenderZoom();
+                if (metricsListener != null) {
+                    task.queuedTime = System.nanoTime();
+                }
+                tasks.put(key, task);
+            } else if (task.rendering) {
+                return;
+            } else {
+                queue.remove(task);
+                task.cacheOrder = cacheOrder;
+            }
+            task.generation = generation;
+            updatePriority(task);
+            queue.add(task);
+        }
+    }
+
+    /**
+     * Cancel tasks which were not requested since {@link #startUpdate()} and are too far from the view,
+     * or were requested for a different zoom level. Other tasks get their priorities updated and all are rendered.
+     * Must be called on the UI thread.
+     */
+    void finishUpdate() {
+        float maxDistance = pdfView.getRenderKeepAliveDistance() * Math.max(pdfView.getWidth(), pdfView.getHeight());
+        synchronized (queue) {
+            Iterator<RenderingTask> iterator = tasks.values().iterator();
+            while (iterator.hasNext()) {
+                RenderingTask task = iterator.next();
+                if (task.rendering || task.generation == generation) {
+                    continue;
+                }
+                queue.remove(task);
+                if ((!task.thumbnail && task.zoom != pdfView.getRenderZoom())
+                        || pdfView.getDistanceFromView(task.userPage, task.bounds) > maxDistance) {
+                    iterator.remove();
+                } else {
+                    updatePriority(task);
+                    queue.add(task);
+                }
+            }
+        }
+        scheduleNext();
+    }
+
+    private void updatePriority(RenderingTask task) {
+        if (task.thumbnail) {
+            task.band = BAND_THUMBNAIL;
+        } else if (pdfView.getDistanceFromView(task.userPage, task.bounds) == 0) {
+            task.band = BAND_VISIBLE;
+        } else {
+            task.band = BAND_HIDDEN;
+        }
+        task.distance = pdfView.getDistanceFromViewCenter(task.userPage, task.bounds);
+        task.sequence = ++sequence;
+    }
+
+    /**
+     * Remove all queued tasks
+     */
+    void cancelAll() {
+        synchronized (queue) {
+            queue.clear();
+            tasks.clear();
+        }
+        removeMessages(MSG_RENDER_TASK);
+    }
+
+    /**
+     * @return true if there are queued parts visible in the view
+     */
+    boolean hasVisibleTasks() {
+        synchronized (queue) {
+            return !queue.isEmpty() && queue.first().band == BAND_VISIBLE;
+        }
+    }
+
+    /**
+     * Send a message rendering the next task, or resuming work waiting for the queue, see {@link #resumePendingWork()}
+     */
+    private void scheduleNext() {
+        synchronized (queue) {
+            if (queue.isEmpty() && !measuringPending && pendingOpenPages == null) {
+                return;
+            }
+        }
+        if (!hasMessages(MSG_RENDER_TASK)) {
+            sendEmptyMessage(MSG_RENDER_TASK);
+        }
+    }
+
+    private RenderingTask pollTask() {
+        synchronized (queue) {
+            RenderingTask task = queue.pollFirst();
+            if (task != null) {
+                task.rendering = true;
+            }
+            return task;
+        }
+    }
+
+    private void onTaskFinished(RenderingTask task) {
+        synchronized (queue) {
+            if (tasks.get(task.key) == task) {
+                tasks.remove(task.key);
+            }
+        }
+    }
+
+    /**
+     * Start measuring all pages in the background, beginning with pages around the given one
+     */
+    void measurePages(int firstPage) {
+        firstBatchToMeasure = Math.max(0, firstPage) / Constants.MEASURE_PAGES_BATCH;
+        sendEmptyMessage(MSG_MEASURE_PAGES);
     }
 
     @Override
     public void handleMessage(Message message) {
-        RenderingTask task = (RenderingTask) message.obj;
+        if (!running) {
+            return;
+        }
+        if (message.what == MSG_MEASURE_PAGES) {
+            measureNextPages();
+            return;
+        }
+        if (message.what == MSG_OPEN_PAGES) {
+            if (hasVisibleTasks()) {
+                // visible parts first, the pages are opened after the last visible part is rendered
+                pendingOpenPages = (int[]) message.obj;
+            } else {
+                pendingOpenPages = null;
+                openPages((int[]) message.obj);
+            }
+            return;
+        }
+        // views sharing the engine take turns, every turn is one message
+        int tasksPerTurn = engine != null ? engine.getTasksPerTurn(pdfView) : 1;
+        if (workers == null) {
+            for (int i = 0; i < tasksPerTurn && running; i++) {
+                RenderingTask task = pollTask();
+                if (task == null) {
+                    break;
+                }
+                try {
+                    render(task);
+                } finally {
+                    onTaskFinished(task);
+                }
+            }
+            resumePendingWork();
+            scheduleNext();
+            return;
+        }
+
+        for (int i = 0; i < tasksPerTurn; i++) {
+            // the thread may be shared, so don't wait for a worker, a finished one schedules the next task
+            if (!freeWorkers.tryAcquire()) {
+                return;
+            }
+            final RenderingTask task = running ? pollTask() : null;
+            if (task == null) {
+                freeWorkers.release();
+                break;
+            }
+            try {
+                workers.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            render(task);
+                        } finally {
+                            onTaskFinished(task);
+                            freeWorkers.release();
+                            onWorkerFinished();
+                        }
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                // stopped in the meantime
+                onTaskFinished(task);
+                freeWorkers.release();
+            }
+        }
+        resumePendingWork();
+        scheduleNext();
+    }
+
+    /**
+     * Called on a worker after it released its permit
+     */
+    private void onWorkerFinished() {
+        if (closePending) {
+            closeDocumentWhenIdle();
+        } else {
+            scheduleNext();
+        }
+    }
+
+    private boolean isQueueEmpty() {
+        synchronized (queue) {
+            return queue.isEmpty();
+        }
+    }
+
+    /**
+     * Resume opening pages when no visible part is queued, and measuring when nothing is queued
+     */
+    private void resumePendingWork() {
+        int[] pages = pendingOpenPages;
+        if (pages != null && !hasVisibleTasks()) {
+            pendingOpenPages = null;
+            sendMessage(obtainMessage(MSG_OPEN_PAGES, pages));
+        }
+        if (measuringPending && isQueueEmpty()) {
+            measuringPending = false;
+            sendEmptyMessage(MSG_MEASURE_PAGES);
+        }
+    }
+
+    /**
+     * Read sizes of the next {@link Constants#MEASURE_PAGES_BATCH} pages, or wait until
+     * there is nothing to render
+     */
+    private void measureNextPages() {
+        if (!isQueueEmpty()) {
+            measuringPending = true;
+            return;
+        }
+
+        int pageCount = document.getPageCount();
+        int batchCount = (pageCount + Constants.MEASURE_PAGES_BATCH - 1) / Constants.MEASURE_PAGES_BATCH;
+        if (measuredBatches >= batchCount) {
+            return;
+        }
+        final int from = nextBatchToMeasure(batchCount) * Constants.MEASURE_PAGES_BATCH;
+        int to = Math.min(from + Constants.MEASURE_PAGES_BATCH, pageCount) - 1;
+        measuredBatches++;
+
+        final int[] widths = new int[to - from + 1];
+        final int[] heights = new int[to - from + 1];
+        synchronized (openedPages) {
+            SparseBooleanArray measuredPages = new SparseBooleanArray();
+            for (int page = from; page <= to; page++) {
+                if (!isPageKnown(page)) {
+                    measuredPages.put(page, true);
+                }
+            }
+            openPages(from, to);
+            for (int page = from; page <= to; page++) {
+                if (openedPages.containsKey(page)) {
+                    widths[page - from] = document.getPageWidth(page);
+                    heights[page - from] = document.getPageHeight(page);
+                }
+            }
+            // pages opened only for measuring are closed first, they may never be rendered
+            for (int i = 0; i < measuredPages.size() && openedPages.size() > getOpenPagesLimit(); i++) {
+                closePage(measuredPages.keyAt(i));
+            }
+            trimOpenedPages();
+        }
+
+        pdfView.post(new Runnable() {
+            @Override
+            public void run() {
+                if (running) {
+                    pdfView.onPageSizesMeasured(from, widths, heights);
+                }
+            }
+        });
+
+        if (measuredBatches < batchCount) {
+            sendEmptyMessage(MSG_MEASURE_PAGES);
+            return;
+        }
+
+        pdfView.post(new Runnable() {
+            @Override
+            public void run() {
+                if (running) {
+                    pdfView.onAllPagesMeasured();
+                }
+            }
+        });
+        final List<Bookmark> tableOfContents = document.getTableOfContents();
+        pdfView.post(new Runnable() {
+            @Override
+            public void run() {
+                if (running) {
+                    pdfView.onTableOfContentsLoaded(tableOfContents);
+                }
+            }
+        });
+    }
+
+    /**
+     * @return index of the next batch to measure, alternating after and before the first measured batch
+     */
+    private int nextBatchToMeasure(int batchCount) {
+        while (true) {
+            int step = measureStep++;
+            int batch = firstBatchToMeasure + (step % 2 == 1 ? (step + 1) / 2 : -step / 2);
+            if (batch >= 0 && batch < batchCount) {
+                return batch;
+            }
+        }
+    }
+
+    private void render(RenderingTask task) {
         try {
             final PagePart part = proceed(task);
             if (part != null) {
@@ -76,7 +583,7 @@ class RenderingHandler extends Handler {
                     pdfView.post(new Runnable() {
                         @Override
                         public void run() {
-                            pdfView.onBitmapRendered(part);
+                            pdfView.onBitmapRendered(part, loadGeneration);
                         }
                     });
                 } else {
@@ -87,65 +594,368 @@ class RenderingHandler extends Handler {
             pdfView.post(new Runnable() {
                 @Override
                 public void run() {
-                    pdfView.onPageError(ex);
+                    if (pdfView.getLoadGeneration() == loadGeneration) {
+                        pdfView.onPageError(ex);
+                    }
                 }
             });
         }
     }
 
     private PagePart proceed(RenderingTask renderingTask) throws PageRenderingException {
-        if (openedPages.indexOfKey(renderingTask.page) < 0) {
-            try {
-                pdfiumCore.openPage(pdfDocument, renderingTask.page);
-                openedPages.put(renderingTask.page, true);
-            } catch (Exception e) {
-                openedPages.put(renderingTask.page, false);
-                throw new PageRenderingException(renderingTask.page, e);
+        int w = Math.round(renderingTask.width);
+        int h = Math.round(renderingTask.height);
+        Bitmap.Config config = renderingTask.bestQuality ? Bitmap.Config.ARGB_8888 : Bitmap.Config.RGB_565;
+
+        long startTime = metricsListener != null ? System.nanoTime() : 0;
+
+        String diskKey = null;
+        if (diskCache != null) {
+            diskKey = DiskCache.createKey(documentFingerprint, renderingTask.key, config, renderingTask.annotationRendering);
+            Bitmap cached = null;
+            if (diskKey != null) {
+                Util.beginTraceSection("PDFView read disk cache");
+                try {
+                    cached = diskCache.get(diskKey, w, h, config, pdfView.bitmapPool);
+                } finally {
+                    Util.endTraceSection();
+                }
+            }
+            if (cached != null) {
+                if (metricsListener != null) {
+                    metricsListener.onPartRendered(renderingTask.page, renderingTask.thumbnail,
+                            startTime - renderingTask.queuedTime, 0, System.nanoTime() - startTime, true);
+                }
+                return createPart(renderingTask, cached);
             }
         }
 
-        int w = Math.round(renderingTask.width);
-        int h = Math.round(renderingTask.height);
-        Bitmap render;
+        boolean pageOpened = acquirePage(renderingTask.page);
         try {
-            render = Bitmap.createBitmap(w, h, renderingTask.bestQuality ? Bitmap.Config.ARGB_8888 : Bitmap.Config.RGB_565);
-        } catch (IllegalArgumentException e) {
-            e.printStackTrace();
-            return null;
-        }
-        calculateBounds(w, h, renderingTask.bounds);
-        if (openedPages.get(renderingTask.page)) {
+            long allocationStartTime = metricsListener != null ? System.nanoTime() : 0;
+            Bitmap render;
+            Util.beginTraceSection("PDFView allocate bitmap");
+            try {
+                render = pdfView.bitmapPool.get(w, h, config);
+            } catch (IllegalArgumentException e) {
+                e.printStackTrace();
+                return null;
+            } finally {
+                Util.endTraceSection();
+            }
+            long renderStartTime = System.nanoTime();
+            if (pageOpened) {
+                // Bounds of the whole page, rendered so that the part lands at (0, 0) of the bitmap
+                RectF bounds = renderingTask.bounds;
+                int left = Math.round(-bounds.left * w / bounds.width());
+                int top = Math.round(-bounds.top * h / bounds.height());
+                int right = Math.round((w - bounds.left * w) / bounds.width());
+                int bottom = Math.round((h - bounds.top * h) / bounds.height());
 
-            pdfiumCore.renderPageBitmap(pdfDocument, render, renderingTask.page,
-                    roundedRenderBounds.left, roundedRenderBounds.top,
-                    roundedRenderBounds.width(), roundedRenderBounds.height(), renderingTask.annotationRendering);
-        } else {
-            render.eraseColor(pdfView.getInvalidPageColor());
+                Util.beginTraceSection("PDFView render");
+                try {
+                    document.renderPage(new BitmapTarget(render), renderingTask.page,
+                            left, top, right - left, bottom - top, renderingTask.annotationRendering);
+                } finally {
+                    Util.endTraceSection();
+                }
+                long renderTime = System.nanoTime() - renderStartTime;
+                pdfView.partSizeTuner.addSample((long) w * h, renderTime);
+                if (!renderingTask.thumbnail) {
+                    updateAverageRenderTime(renderTime);
+                }
+                if (metricsListener != null) {
+                    metricsListener.onPartRendered(renderingTask.page, renderingTask.thumbnail,
+                            startTime - renderingTask.queuedTime, renderStartTime - allocationStartTime,
+                            renderTime, false);
+                }
+                if (diskKey != null) {
+                    // parts on the screen and thumbnails are shown first after reopening, so they are never skipped
+                    diskCache.put(diskKey, render, renderingTask.thumbnail || renderingTask.band == BAND_VISIBLE);
+                }
+            } else {
+                render.eraseColor(pdfView.getInvalidPageColor());
+            }
+            return createPart(renderingTask, render);
+        } finally {
+            if (pageOpened) {
+                releasePage(renderingTask.page);
+            }
         }
-        return new PagePart(renderingTask.userPage, renderingTask.page, render,
+    }
+
+    private synchronized void updateAverageRenderTime(long renderTime) {
+        long average = averageRenderTime;
+        averageRenderTime = average == 0 ? renderTime : (average * 7 + renderTime) / 8;
+    }
+
+    /**
+     * Estimate time of rendering given number of parts by all rendering threads,
+     * from the average time of recently rendered parts
+     *
+     * @return time in seconds, 0 if nothing was rendered yet
+     */
+    float estimateRenderTime(int parts) {
+        return parts * averageRenderTime / (threads * 1e9f);
+    }
+
+    private PagePart createPart(RenderingTask renderingTask, Bitmap bitmap) {
+        return new PagePart(renderingTask.userPage, renderingTask.page, bitmap,
                 renderingTask.width, renderingTask.height,
                 renderingTask.bounds, renderingTask.thumbnail,
                 renderingTask.cacheOrder);
     }
 
-    private void calculateBounds(int width, int height, RectF pageSliceBounds) {
-        renderMatrix.reset();
-        renderMatrix.postTranslate(-pageSliceBounds.left * width, -pageSliceBounds.top * height);
-        renderMatrix.postScale(1 / pageSliceBounds.width(), 1 / pageSliceBounds.height());
+    /**
+     * Open page if it wasn't opened yet, and keep it open until {@link #releasePage(int)}
+     *
+     * @return true if page is opened, false if it cannot be opened
+     * @throws PageRenderingException when opening page fails for the first time
+     */
+    private boolean acquirePage(int page) throws PageRenderingException {
+        synchronized (openedPages) {
+            if (brokenPages.get(page)) {
+                return false;
+            }
+            Integer users = openedPages.get(page);
+            if (users == null) {
+                try {
+                    document.openPage(page);
+                } catch (Exception e) {
+                    brokenPages.put(page, true);
+                    throw new PageRenderingException(page, e);
+                }
+                users = 0;
+            }
+            openedPages.put(page, users + 1);
+            return true;
+        }
+    }
+
+    /**
+     * Let the page acquired with {@link #acquirePage(int)} be closed
+     */
+    private void releasePage(int page) {
+        synchronized (openedPages) {
+            Integer users = openedPages.get(page);
+            if (users != null) {
+                openedPages.put(page, users - 1);
+            }
+            trimOpenedPages();
+        }
+    }
 
-        renderBounds.set(0, 0, width, height);
-        renderMatrix.mapRect(renderBounds);
-        renderBounds.round(roundedRenderBounds);
+    /**
+     * Mark page opened by someone else, so that it's not opened again. Must be called before {@link #start()}.
+     */
+    void addOpenedPage(int page) {
+        synchronized (openedPages) {
+            if (page >= 0 && !openedPages.containsKey(page)) {
+                openedPages.put(page, 0);
+            }
+        }
     }
 
+    /**
+     * Open given pages in the background, unless they are opened already, replacing pages requested before.
+     * Must be called on the UI thread.
+     *
+     * @param pages document pages
+     */
+    void openPagesAhead(int[] pages) {
+        removeMessages(MSG_OPEN_PAGES);
+        pendingOpenPages = null;
+        if (pages.length > 0) {
+            sendMessage(obtainMessage(MSG_OPEN_PAGES, pages));
+        }
+    }
+
+    /**
+     * Open given pages, consecutive ones with one call to the document
+     */
+    private void openPages(int[] pages) {
+        int[] sorted = pages.clone();
+        Arrays.sort(sorted);
+        synchronized (openedPages) {
+            int i = 0;
+            while (i < sorted.length) {
+                int last = i;
+                while (last + 1 < sorted.length && sorted[last + 1] <= sorted[last] + 1) {
+                    last++;
+                }
+                openPages(sorted[i], sorted[last]);
+                i = last + 1;
+            }
+            trimOpenedPages();
+        }
+    }
+
+    /**
+     * @return true if page is opened or cannot be opened, must be called when holding the lock
+     */
+    private boolean isPageKnown(int page) {
+        return openedPages.containsKey(page) || brokenPages.get(page);
+    }
+
+    /**
+     * Open pages which weren't opened yet, consecutive ones with one call to the document.
+     * Errors are ignored, they are reported when the page is rendered. Must be called when holding the lock.
+     */
+    private void openPages(int from, int to) {
+        int page = from;
+        while (page <= to) {
+            if (isPageKnown(page)) {
+                page++;
+                continue;
+            }
+            int last = page;
+            while (last < to && !isPageKnown(last + 1)) {
+                last++;
+            }
+            try {
+                document.openPages(page, last);
+                for (int i = page; i <= last; i++) {
+                    openedPages.put(i, 0);
+                }
+            } catch (Exception e) {
+                for (int i = page; i <= last; i++) {
+                    try {
+                        document.openPage(i);
+                        openedPages.put(i, 0);
+                    } catch (Exception ignored) {
+                    }
+                }
+            }
+            page = last + 1;
+        }
+    }
+
+    /**
+     * @return maximum number of opened pages, 0 when stopped so that every page is closed when it's not used
+     */
+    private int getOpenPagesLimit() {
+        return running ? maxOpenPages : 0;
+    }
+
+    /**
+     * Close the least recently rendered pages which are not rendered now, until there are
+     * no more opened pages than the limit. Must be called when holding the lock.
+     */
+    private void trimOpenedPages() {
+        int limit = getOpenPagesLimit();
+        Iterator<Map.Entry<Integer, Integer>> iterator = openedPages.entrySet().iterator();
+        while (closingPages && openedPages.size() > limit && iterator.hasNext()) {
+            Map.Entry<Integer, Integer> entry = iterator.next();
+            if (entry.getValue() > 0) {
+                continue;
+            }
+            if (!document.closePage(entry.getKey())) {
+                closingPages = false;
+                return;
+            }
+            iterator.remove();
+        }
+    }
+
+    /**
+     * Close the page if it's opened and not rendered, must be called when holding the lock
+     */
+    private void closePage(int page) {
+        Integer users = openedPages.get(page);
+        if (closingPages && users != null && users == 0) {
+            if (document.closePage(page)) {
+                openedPages.remove(page);
+            } else {
+                closingPages = false;
+            }
+        }
+    }
+
+    /**
+     * Cancel all tasks, pages are closed later by {@link #closeDocument()} on the rendering thread
+     */
     void stop() {
         running = false;
+        cancelAll();
+        removeMessages(MSG_OPEN_PAGES);
+        pendingOpenPages = null;
+        if (workers != null && engine == null) {
+            workers.shutdown();
+        }
     }
 
     void start() {
         running = true;
     }
 
+    /**
+     * Close pages and the document after the parts rendered now, if any, are finished.
+     * Must be called after {@link #stop()}, on the UI thread.
+     */
+    void closeDocument() {
+        Runnable close = new Runnable() {
+            @Override
+            public void run() {
+                if (workers == null) {
+                    closeDocumentNow();
+                } else {
+                    closePending = true;
+                    closeDocumentWhenIdle();
+                }
+            }
+        };
+        // the looper renders one part at a time, so the document is closed after the current one
+        if (!post(close)) {
+            close.run();
+        }
+    }
+
+    /**
+     * Close the document if no worker renders, otherwise the last finished worker closes it.
+     * Permits are never released afterwards, so the document is closed once.
+     */
+    private void closeDocumentWhenIdle() {
+        if (freeWorkers.tryAcquire(threads)) {
+            closeDocumentNow();
+        }
+    }
+
+    private void closeDocumentNow() {
+        synchronized (openedPages) {
+            trimOpenedPages();
+        }
+        document.close();
+    }
+
+    private static class WorkerThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger count = new AtomicInteger(1);
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            return new Thread(runnable, "PDF renderer #" + count.getAndIncrement());
+        }
+    }
+
+    /**
+     * Orders tasks by band, distance from the view center and then by the time they were queued
+     */
+    private static class RenderingTaskComparator implements Comparator<RenderingTask> {
+        @Override
+        public int compare(RenderingTask task1, RenderingTask task2) {
+            if (task1.band != task2.band) {
+                return task1.band < task2.band ? -1 : 1;
+            }
+            if (task1.distance != task2.distance) {
+                return task1.distance < task2.distance ? -1 : 1;
+            }
+            if (task1.sequence != task2.sequence) {
+                return task1.sequence < task2.sequence ? -1 : 1;
+            }
+            return 0;
+        }
+    }
+
     private class RenderingTask {
 
         float width, height;
@@ -164,6 +974,34 @@ class RenderingHandler extends Handler {
 
         boolean annotationRendering;
 
+        PagePartKey key;
+
+        /**
+         * Zoom level at which the task was requested
+         */
+        float zoom;
+
+        /**
+         * {@link System#nanoTime()} when the task was queued, only when measuring
+         */
+        long queuedTime;
+
+        int band;
+
+        /**
+         * Distance from the center of the view in pixels
+         */
+        float distance;
+
+        long sequence;
+
+        int generation;
+
+        /**
+         * True when the task was taken from the queue
+         */
+        boolean rendering;
+
         RenderingTask(float width, float height, RectF bounds, int userPage, int page, boolean thumbnail, int cacheOrder, boolean bestQuality, boolean annotationRendering) {
             this.page = page;
             this.width = width;
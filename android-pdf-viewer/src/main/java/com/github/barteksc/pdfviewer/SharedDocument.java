@@ -0,0 +1,177 @@
+/**
+ * Copyright 2017 Bartosz Schiller
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.barteksc.pdfviewer;
+
+import android.util.SparseArray;
+import android.util.SparseIntArray;
+
+import com.github.barteksc.pdfviewer.model.Bookmark;
+import com.github.barteksc.pdfviewer.model.DocumentMeta;
+import com.github.barteksc.pdfviewer.renderer.DocumentHandle;
+import com.github.barteksc.pdfviewer.renderer.RenderTarget;
+
+import java.util.List;
+
+/**
+ * Document opened once and used by all views showing it, kept in the {@link DocumentPool}.
+ * <p>
+ * Every view holds a reference and {@link #close()} releases it. The pool closes the document
+ * some time after the last reference is released. Pages are opened only once for all views
+ * and all loads, as opening an already opened page again would leak it, and closed when
+ * every view which opened them closes them.
+ */
+class SharedDocument implements DocumentHandle {
+
+    private final DocumentPool pool;
+
+    private final String key;
+
+    private final DocumentHandle document;
+
+    /**
+     * Guarded by the pool
+     */
+    int references = 1;
+
+    /**
+     * {@link android.os.SystemClock#uptimeMillis()} when the last reference was released, guarded by the pool
+     */
+    long idleSince;
+
+    /**
+     * Number of times opened pages were opened and not closed yet, guarded by itself
+     */
+    private final SparseIntArray pageReferences = new SparseIntArray();
+
+    /**
+     * Errors of pages which cannot be opened, guarded by {@link #pageReferences}
+     */
+    private final SparseArray<RuntimeException> pageErrors = new SparseArray<>();
+
+    SharedDocument(DocumentPool pool, String key, DocumentHandle document) {
+        this.pool = pool;
+        this.key = key;
+        this.document = document;
+    }
+
+    String getKey() {
+        return key;
+    }
+
+    /**
+     * Close the wrapped document, called by the pool when the document is removed from it
+     */
+    void closeDocument() {
+        document.close();
+    }
+
+    @Override
+    public int getPageCount() {
+        return document.getPageCount();
+    }
+
+    @Override
+    public void openPage(int page) {
+        synchronized (pageReferences) {
+            RuntimeException error = pageErrors.get(page);
+            if (error != null) {
+                throw error;
+            }
+            int references = pageReferences.get(page);
+            if (references == 0) {
+                try {
+                    document.openPage(page);
+                } catch (RuntimeException e) {
+                    pageErrors.put(page, e);
+                    throw e;
+                }
+            }
+            pageReferences.put(page, references + 1);
+        }
+    }
+
+    @Override
+    public void openPages(int from, int to) {
+        synchronized (pageReferences) {
+            for (int page = from; page <= to; page++) {
+                if (pageReferences.get(page) > 0 || pageErrors.get(page) != null) {
+                    // some pages are opened already, open the others one by one
+                    for (int i = from; i <= to; i++) {
+                        openPage(i);
+                    }
+                    return;
+                }
+            }
+            document.openPages(from, to);
+            for (int page = from; page <= to; page++) {
+                pageReferences.put(page, 1);
+            }
+        }
+    }
+
+    /**
+     * Close the page when it's closed as many times as it was opened
+     */
+    @Override
+    public boolean closePage(int page) {
+        synchronized (pageReferences) {
+            int references = pageReferences.get(page);
+            if (references > 1) {
+                pageReferences.put(page, references - 1);
+            } else if (references == 1) {
+                if (!document.closePage(page)) {
+                    return false;
+                }
+                pageReferences.delete(page);
+            }
+            return true;
+        }
+    }
+
+    @Override
+    public int getPageWidth(int page) {
+        return document.getPageWidth(page);
+    }
+
+    @Override
+    public int getPageHeight(int page) {
+        return document.getPageHeight(page);
+    }
+
+    @Override
+    public void renderPage(RenderTarget target, int page, int startX, int startY, int drawSizeX, int drawSizeY,
+                           boolean annotationRendering) {
+        document.renderPage(target, page, startX, startY, drawSizeX, drawSizeY, annotationRendering);
+    }
+
+    @Override
+    public DocumentMeta getDocumentMeta() {
+        return document.getDocumentMeta();
+    }
+
+    @Override
+    public List<Bookmark> getTableOfContents() {
+        return document.getTableOfContents();
+    }
+
+    /**
+     * Release the reference of one view
+     */
+    @Override
+    public void close() {
+        pool.release(this);
+    }
+}
@@ -0,0 +1,61 @@
+/**
+ * Copyright 2017 Bartosz Schiller
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.barteksc.pdfviewer.listener;
+
+import com.github.barteksc.pdfviewer.model.Bookmark;
+
+import java.util.List;
+
+/**
+ * Receives phases of loading a document. The document is opened and the default page is sized
+ * before {@link OnLoadCompleteListener#loadComplete(int)}, other pages are measured and the table of contents
+ * is read in the background after it, when nothing is rendered.
+ * Methods are called on the UI thread, and not at all when the load is cancelled.
+ */
+public interface OnLoadProgressListener {
+
+    /**
+     * Called when the document is opened, or taken from {@link com.github.barteksc.pdfviewer.DocumentPool}
+     */
+    void onDocumentOpened();
+
+    /**
+     * Called when the number of pages in the document is read
+     *
+     * @param pageCount number of document pages
+     */
+    void onPageCountKnown(int pageCount);
+
+    /**
+     * Called when the size of the default page is read, the view is laid out with it
+     *
+     * @param page   document page shown first
+     * @param width  original width of the page
+     * @param height original height of the page
+     */
+    void onFirstPageSized(int page, int width, int height);
+
+    /**
+     * Called when sizes of all pages are read and the layout is updated with them
+     */
+    void onAllPagesMeasured();
+
+    /**
+     * Called when the table of contents is read, {@link com.github.barteksc.pdfviewer.PDFView#getTableOfContents()}
+     * then returns it without reading it again
+     */
+    void onTableOfContentsLoaded(List<Bookmark> tableOfContents);
+}
@@ -0,0 +1,74 @@
+/**
+ * Copyright 2017 Bartosz Schiller
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.barteksc.pdfviewer.listener;
+
+/**
+ * Receives measurements of the rendering pipeline. All times are in nanoseconds.
+ * When no listener is set, nothing is measured.
+ */
+public interface OnRenderMetricsListener {
+
+    /**
+     * Called on a rendering thread after a part is rendered, so implementation must be thread safe
+     *
+     * @param page           document page
+     * @param thumbnail      true if part is a thumbnail
+     * @param queueTime      time the part waited in the rendering queue
+     * @param allocationTime time spent getting a bitmap from the pool or allocating a new one
+     * @param renderTime     time spent in Pdfium, or reading the part from the disk cache
+     * @param fromDiskCache  true if the part was read from the disk cache instead of rendering
+     */
+    void onPartRendered(int page, boolean thumbnail, long queueTime, long allocationTime, long renderTime, boolean fromDiskCache);
+
+    /**
+     * Called when the document is loaded
+     *
+     * @param openTime time of opening the document and reading size of the first page
+     * @param reused   true if the document was already opened, by another view or by a previous load
+     */
+    void onDocumentOpened(long openTime, boolean reused);
+
+    /**
+     * Called when the first part visible in the view is shown after loading parts
+     *
+     * @param time time from the first {@link com.github.barteksc.pdfviewer.PDFView#loadPages()}
+     *             which requested a visible part
+     */
+    void onFirstVisiblePart(long time);
+
+    /**
+     * Called when a requested part was found in the memory cache
+     */
+    void onCacheHit(int page, boolean thumbnail);
+
+    /**
+     * Called when a requested part wasn't found in the memory cache and has to be rendered
+     */
+    void onCacheMiss(int page, boolean thumbnail);
+
+    /**
+     * Called when a part is removed from the memory cache to make space for a new one
+     */
+    void onCacheEviction(int page, boolean thumbnail);
+
+    /**
+     * Called after drawing the view
+     *
+     * @param drawTime time spent in {@link android.view.View#onDraw(android.graphics.Canvas)}
+     * @param parts    number of parts and thumbnails drawn
+     */
+    void onDraw(long drawTime, int parts);
+}
@@ -0,0 +1,60 @@
+/**
+ * Copyright 2017 Bartosz Schiller
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.barteksc.pdfviewer.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Entry of the table of contents
+ */
+public class Bookmark {
+
+    private final String title;
+
+    private final long pageIdx;
+
+    private final List<Bookmark> children;
+
+    /**
+     * @param pageIdx  index of the document page the bookmark points to
+     * @param children nested bookmarks, may be null
+     */
+    public Bookmark(String title, long pageIdx, List<Bookmark> children) {
+        this.title = title;
+        this.pageIdx = pageIdx;
+        this.children = children != null
+                ? Collections.unmodifiableList(new ArrayList<>(children))
+                : Collections.<Bookmark>emptyList();
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public long getPageIdx() {
+        return pageIdx;
+    }
+
+    public List<Bookmark> getChildren() {
+        return children;
+    }
+
+    public boolean hasChildren() {
+        return !children.isEmpty();
+    }
+}
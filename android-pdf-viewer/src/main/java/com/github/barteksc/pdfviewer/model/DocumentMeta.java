@@ -0,0 +1,82 @@
+/**
+ * Copyright 2017 Bartosz Schiller
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.barteksc.pdfviewer.model;
+
+/**
+ * Metadata of a document, fields are null when the document doesn't define them
+ */
+public class DocumentMeta {
+
+    private final String title;
+
+    private final String author;
+
+    private final String subject;
+
+    private final String keywords;
+
+    private final String creator;
+
+    private final String producer;
+
+    private final String creationDate;
+
+    private final String modDate;
+
+    public DocumentMeta(String title, String author, String subject, String keywords,
+                        String creator, String producer, String creationDate, String modDate) {
+        this.title = title;
+        this.author = author;
+        this.subject = subject;
+        this.keywords = keywords;
+        this.creator = creator;
+        this.producer = producer;
+        this.creationDate = creationDate;
+        this.modDate = modDate;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public String getAuthor() {
+        return author;
+    }
+
+    public String getSubject() {
+        return subject;
+    }
+
+    public String getKeywords() {
+        return keywords;
+    }
+
+    public String getCreator() {
+        return creator;
+    }
+
+    public String getProducer() {
+        return producer;
+    }
+
+    public String getCreationDate() {
+        return creationDate;
+    }
+
+    public String getModDate() {
+        return modDate;
+    }
+}
@@ -34,14 +34,19 @@ public class PagePart {
 
     private int cacheOrder;
 
+    private final PagePartKey key;
+
     public PagePart(int userPage, int page, Bitmap renderedBitmap, float width, float height, RectF pageRelativeBounds, boolean thumbnail, int cacheOrder) {
         super();
         this.userPage = userPage;
         this.page = page;
         this.renderedBitmap = renderedBitmap;
+        this.width = width;
+        this.height = height;
         this.pageRelativeBounds = pageRelativeBounds;
         this.thumbnail = thumbnail;
         this.cacheOrder = cacheOrder;
+        this.key = new PagePartKey(userPage, page, width, height, pageRelativeBounds, thumbnail);
     }
 
     public int getCacheOrder() {
@@ -80,6 +85,18 @@ public class PagePart {
         this.cacheOrder = cacheOrder;
     }
 
+    public PagePartKey getKey() {
+        return key;
+    }
+
+    /**
+     * @return width of the whole page rendered at the resolution of this part,
+     * parts rendered at higher zoom levels have bigger values
+     */
+    public float getPageRenderWidth() {
+        return width / pageRelativeBounds.width();
+    }
+
     @Override
     public boolean equals(Object obj) {
         if (!(obj instanceof PagePart)) {
@@ -87,14 +104,12 @@ public class PagePart {
         }
 
         PagePart part = (PagePart) obj;
-        return part.getPage() == page
-                && part.getUserPage() == userPage
-                && part.getWidth() == width
-                && part.getHeight() == height
-                && part.getPageRelativeBounds().left == pageRelativeBounds.left
-                && part.getPageRelativeBounds().right == pageRelativeBounds.right
-                && part.getPageRelativeBounds().top == pageRelativeBounds.top
-                && part.getPageRelativeBounds().bottom == pageRelativeBounds.bottom;
+        return part.getKey().equals(key);
+    }
+
+    @Override
+    public int hashCode() {
+        return key.hashCode();
     }
 
 }
@@ -0,0 +1,171 @@
+/**
+ * Copyright 2017 Bartosz Schiller
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.barteksc.pdfviewer.model;
+
+import android.graphics.RectF;
+
+/**
+ * Immutable identity of a {@link PagePart}, usable as a hash map key.
+ * Page relative bounds are quantized, so float rounding errors don't produce different keys
+ * for the same part, and render size is rounded the same way as the rendered bitmap size.
+ */
+public final class PagePartKey implements Comparable<PagePartKey> {
+
+    /**
+     * Number of steps page relative bounds are quantized to
+     */
+    private static final float BOUNDS_PRECISION = 1 << 16;
+
+    private final int userPage;
+
+    private final int page;
+
+    private final int width, height;
+
+    private final int left, top, right, bottom;
+
+    private final boolean thumbnail;
+
+    private final int hashCode;
+
+    public PagePartKey(int userPage, int page, float width, float height, RectF pageRelativeBounds, boolean thumbnail) {
+        this.userPage = userPage;
+        this.page = page;
+        this.width = Math.round(width);
+        this.height = Math.round(height);
+        this.left = quantize(pageRelativeBounds.left);
+        this.top = quantize(pageRelativeBounds.top);
+        this.right = quantize(pageRelativeBounds.right);
+        this.bottom = quantize(pageRelativeBounds.bottom);
+        this.thumbnail = thumbnail;
+        this.hashCode = calculateHashCode();
+    }
+
+    private static int quantize(float value) {
+        return Math.round(value * BOUNDS_PRECISION);
+    }
+
+    private int calculateHashCode() {
+        int result = userPage;
+        result = 31 * result + page;
+        result = 31 * result + width;
+        result = 31 * result + height;
+        result = 31 * result + left;
+        result = 31 * result + top;
+        result = 31 * result + right;
+        result = 31 * result + bottom;
+        result = 31 * result + (thumbnail ? 1 : 0);
+        return result;
+    }
+
+    public int getUserPage() {
+        return userPage;
+    }
+
+    public int getPage() {
+        return page;
+    }
+
+    public boolean isThumbnail() {
+        return thumbnail;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * @return quantized page relative bounds, as <code>[left, top, right, bottom]</code>
+     */
+    public int[] getQuantizedBounds() {
+        return new int[]{left, top, right, bottom};
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof PagePartKey)) {
+            return false;
+        }
+
+        PagePartKey key = (PagePartKey) obj;
+        return key.hashCode == hashCode
+                && key.userPage == userPage
+                && key.page == page
+                && key.width == width
+                && key.height == height
+                && key.left == left
+                && key.top == top
+                && key.right == right
+                && key.bottom == bottom
+                && key.thumbnail == thumbnail;
+    }
+
+    @Override
+    public int hashCode() {
+        return hashCode;
+    }
+
+    /**
+     * Arbitrary but stable order, consistent with {@link #equals(Object)}
+     */
+    @Override
+    public int compareTo(PagePartKey other) {
+        int result = compare(userPage, other.userPage);
+        if (result == 0) {
+            result = compare(page, other.page);
+        }
+        if (result == 0) {
+            result = compare(top, other.top);
+        }
+        if (result == 0) {
+            result = compare(left, other.left);
+        }
+        if (result == 0) {
+            result = compare(bottom, other.bottom);
+        }
+        if (result == 0) {
+            result = compare(right, other.right);
+        }
+        if (result == 0) {
+            result = compare(width, other.width);
+        }
+        if (result == 0) {
+            result = compare(height, other.height);
+        }
+        if (result == 0) {
+            result = compare(thumbnail ? 1 : 0, other.thumbnail ? 1 : 0);
+        }
+        return result;
+    }
+
+    private static int compare(int a, int b) {
+        return a < b ? -1 : (a == b ? 0 : 1);
+    }
+
+    @Override
+    public String toString() {
+        return "PagePartKey{page=" + page + ", userPage=" + userPage + ", size=" + width + "x" + height
+                + ", bounds=[" + left + "," + top + "," + right + "," + bottom + "]/" + (int) BOUNDS_PRECISION
+                + (thumbnail ? ", thumbnail" : "") + "}";
+    }
+}
@@ -0,0 +1,50 @@
+/**
+ * Copyright 2017 Bartosz Schiller
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.barteksc.pdfviewer.renderer;
+
+import android.graphics.Bitmap;
+
+/**
+ * {@link RenderTarget} writing into a mutable bitmap. Renderers which can draw into bitmaps directly,
+ * like {@link PdfiumRenderer}, use {@link #getBitmap()} instead of copying pixels.
+ */
+public class BitmapTarget implements RenderTarget {
+
+    private final Bitmap bitmap;
+
+    public BitmapTarget(Bitmap bitmap) {
+        this.bitmap = bitmap;
+    }
+
+    public Bitmap getBitmap() {
+        return bitmap;
+    }
+
+    @Override
+    public int getWidth() {
+        return bitmap.getWidth();
+    }
+
+    @Override
+    public int getHeight() {
+        return bitmap.getHeight();
+    }
+
+    @Override
+    public void setPixels(int[] pixels, int offset, int stride, int x, int y, int width, int height) {
+        bitmap.setPixels(pixels, offset, stride, x, y, width, height);
+    }
+}
@@ -0,0 +1,74 @@
+/**
+ * Copyright 2017 Bartosz Schiller
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.barteksc.pdfviewer.renderer;
+
+import com.github.barteksc.pdfviewer.model.Bookmark;
+import com.github.barteksc.pdfviewer.model.DocumentMeta;
+
+import java.util.List;
+
+/**
+ * Document opened by a {@link PageRenderer}.
+ * <p>
+ * Methods are called from the UI thread and from rendering threads at the same time,
+ * so implementations must be thread safe. Pages must be opened before their size is read
+ * or they are rendered, and a page is opened only once until it is closed.
+ */
+public interface DocumentHandle {
+
+    int getPageCount();
+
+    /**
+     * @throws RuntimeException if the page cannot be opened
+     */
+    void openPage(int page);
+
+    /**
+     * Open pages from <code>from</code> to <code>to</code>, inclusive
+     *
+     * @throws RuntimeException if any of the pages cannot be opened
+     */
+    void openPages(int from, int to);
+
+    /**
+     * Close an opened page to free its memory, it may be opened again later
+     *
+     * @return false if the document cannot close single pages, then pages stay open until the document is closed
+     */
+    boolean closePage(int page);
+
+    int getPageWidth(int page);
+
+    int getPageHeight(int page);
+
+    /**
+     * Render page into the target, so that the whole page has given bounds in the target
+     */
+    void renderPage(RenderTarget target, int page, int startX, int startY, int drawSizeX, int drawSizeY,
+                    boolean annotationRendering);
+
+    /**
+     * @return metadata or null if not available
+     */
+    DocumentMeta getDocumentMeta();
+
+    List<Bookmark> getTableOfContents();
+
+    /**
+     * Release the document, no other method is called afterwards
+     */
+    void close();
+}
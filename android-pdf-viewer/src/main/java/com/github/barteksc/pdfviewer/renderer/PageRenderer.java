@@ -0,0 +1,36 @@
+/**
+ * Copyright 2017 Bartosz Schiller
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.barteksc.pdfviewer.renderer;
+
+import android.content.Context;
+
+import com.github.barteksc.pdfviewer.source.DocumentSource;
+
+import java.io.IOException;
+
+/**
+ * Backend which opens documents for {@link com.github.barteksc.pdfviewer.PDFView}.
+ * {@link PdfiumRenderer} is used by default.
+ */
+public interface PageRenderer {
+
+    /**
+     * Open document, called on a background thread
+     *
+     * @throws IOException if the document cannot be opened
+     */
+    DocumentHandle openDocument(Context context, DocumentSource source, String password) throws IOException;
+}
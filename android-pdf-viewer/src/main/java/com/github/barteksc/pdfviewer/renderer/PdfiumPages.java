@@ -0,0 +1,112 @@
+/**
+ * Copyright 2017 Bartosz Schiller
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.barteksc.pdfviewer.renderer;
+
+import android.util.Log;
+
+import com.shockwave.pdfium.PdfDocument;
+import com.shockwave.pdfium.PdfiumCore;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.Map;
+
+/**
+ * Closes single pages, which {@link PdfiumCore} doesn't expose. Opened pages are kept in the document
+ * and closed all at once with it, so a page is closed the same way {@link PdfiumCore#closeDocument(PdfDocument)}
+ * closes it, through private members. If this version of Pdfium doesn't have them, or they were removed
+ * by code shrinking despite the rules in <code>proguard-rules.pro</code>, a warning is logged once
+ * and pages are not closed anymore.
+ */
+final class PdfiumPages {
+
+    private static final String TAG = PdfiumPages.class.getSimpleName();
+
+    private static boolean initialized = false;
+
+    /**
+     * False after the members were not found or failed, guarded by the class
+     */
+    private static boolean supported = false;
+
+    /**
+     * Native pointers of opened pages by index, in {@link PdfDocument}
+     */
+    private static Field pagesField;
+
+    private static Method closePageMethod;
+
+    /**
+     * Lock of {@link PdfiumCore} serializing all calls to Pdfium
+     */
+    private static Object lock;
+
+    private PdfiumPages() {
+    }
+
+    private static synchronized boolean initialize() {
+        if (!initialized) {
+            initialized = true;
+            try {
+                pagesField = PdfDocument.class.getDeclaredField("mNativePagesPtr");
+                pagesField.setAccessible(true);
+                closePageMethod = PdfiumCore.class.getDeclaredMethod("nativeClosePage", long.class);
+                closePageMethod.setAccessible(true);
+                Field lockField = PdfiumCore.class.getDeclaredField("lock");
+                lockField.setAccessible(true);
+                lock = lockField.get(null);
+                supported = lock != null;
+            } catch (NoSuchFieldException | NoSuchMethodException | IllegalAccessException | RuntimeException e) {
+                Log.w(TAG, "Closing single pages is not supported", e);
+            }
+        }
+        return supported;
+    }
+
+    private static synchronized void disable(Exception e) {
+        if (supported) {
+            supported = false;
+            Log.w(TAG, "Closing single pages failed, pages are closed with the document", e);
+        }
+    }
+
+    /**
+     * Close the page if it's opened, must be called when holding the lock of the document
+     *
+     * @return false if pages cannot be closed
+     */
+    @SuppressWarnings("unchecked")
+    static boolean close(PdfiumCore pdfiumCore, PdfDocument pdfDocument, int page) {
+        if (!initialize()) {
+            return false;
+        }
+        try {
+            synchronized (lock) {
+                Map<Integer, Long> pages = (Map<Integer, Long>) pagesField.get(pdfDocument);
+                Long pagePtr = pages.get(page);
+                if (pagePtr != null) {
+                    closePageMethod.invoke(pdfiumCore, pagePtr);
+                    pages.remove(page);
+                }
+            }
+            return true;
+        } catch (IllegalAccessException | InvocationTargetException | RuntimeException e) {
+            disable(e);
+            return false;
+        }
+    }
+}
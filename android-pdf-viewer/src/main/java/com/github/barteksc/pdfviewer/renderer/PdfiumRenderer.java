@@ -0,0 +1,194 @@
+/**
+ * Copyright 2017 Bartosz Schiller
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.barteksc.pdfviewer.renderer;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.os.ParcelFileDescriptor;
+
+import com.github.barteksc.pdfviewer.model.Bookmark;
+import com.github.barteksc.pdfviewer.model.DocumentMeta;
+import com.github.barteksc.pdfviewer.source.DocumentInput;
+import com.github.barteksc.pdfviewer.source.DocumentSource;
+import com.shockwave.pdfium.PdfDocument;
+import com.shockwave.pdfium.PdfiumCore;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Renders documents with Pdfium. Pdfium types don't leave this class, metadata and bookmarks
+ * are converted to {@link DocumentMeta} and {@link Bookmark}.
+ */
+public class PdfiumRenderer implements PageRenderer {
+
+    private final PdfiumCore pdfiumCore;
+
+    public PdfiumRenderer(Context context) {
+        this(new PdfiumCore(context));
+    }
+
+    public PdfiumRenderer(PdfiumCore pdfiumCore) {
+        this.pdfiumCore = pdfiumCore;
+    }
+
+    @Override
+    public DocumentHandle openDocument(Context context, DocumentSource source, String password) throws IOException {
+        DocumentInput input = source.openInput(context);
+        try {
+            if (input.getBytes() != null) {
+                return new PdfiumDocumentHandle(pdfiumCore, pdfiumCore.newDocument(input.getBytes(), password));
+            }
+            // the document reads the descriptor until it is closed
+            ParcelFileDescriptor fileDescriptor = input.detachFileDescriptor();
+            try {
+                return new PdfiumDocumentHandle(pdfiumCore, pdfiumCore.newDocument(fileDescriptor, password));
+            } catch (IOException | RuntimeException e) {
+                fileDescriptor.close();
+                throw e;
+            }
+        } finally {
+            input.close();
+        }
+    }
+
+    private static DocumentMeta toDocumentMeta(PdfDocument.Meta meta) {
+        if (meta == null) {
+            return null;
+        }
+        return new DocumentMeta(meta.getTitle(), meta.getAuthor(), meta.getSubject(), meta.getKeywords(),
+                meta.getCreator(), meta.getProducer(), meta.getCreationDate(), meta.getModDate());
+    }
+
+    private static List<Bookmark> toBookmarks(List<PdfDocument.Bookmark> pdfiumBookmarks) {
+        List<Bookmark> bookmarks = new ArrayList<>();
+        if (pdfiumBookmarks == null) {
+            return bookmarks;
+        }
+        for (PdfDocument.Bookmark bookmark : pdfiumBookmarks) {
+            bookmarks.add(new Bookmark(bookmark.getTitle(), bookmark.getPageIdx(), toBookmarks(bookmark.getChildren())));
+        }
+        return bookmarks;
+    }
+
+    /**
+     * Calls to Pdfium are serialized per document
+     */
+    private static class PdfiumDocumentHandle implements DocumentHandle {
+
+        private final PdfiumCore pdfiumCore;
+
+        private final PdfDocument pdfDocument;
+
+        PdfiumDocumentHandle(PdfiumCore pdfiumCore, PdfDocument pdfDocument) {
+            this.pdfiumCore = pdfiumCore;
+            this.pdfDocument = pdfDocument;
+        }
+
+        @Override
+        public int getPageCount() {
+            synchronized (pdfDocument) {
+                return pdfiumCore.getPageCount(pdfDocument);
+            }
+        }
+
+        @Override
+        public void openPage(int page) {
+            synchronized (pdfDocument) {
+                pdfiumCore.openPage(pdfDocument, page);
+            }
+        }
+
+        @Override
+        public void openPages(int from, int to) {
+            synchronized (pdfDocument) {
+                pdfiumCore.openPage(pdfDocument, from, to);
+            }
+        }
+
+        @Override
+        public boolean closePage(int page) {
+            synchronized (pdfDocument) {
+                return PdfiumPages.close(pdfiumCore, pdfDocument, page);
+            }
+        }
+
+        @Override
+        public int getPageWidth(int page) {
+            synchronized (pdfDocument) {
+                return pdfiumCore.getPageWidth(pdfDocument, page);
+            }
+        }
+
+        @Override
+        public int getPageHeight(int page) {
+            synchronized (pdfDocument) {
+                return pdfiumCore.getPageHeight(pdfDocument, page);
+            }
+        }
+
+        @Override
+        public void renderPage(RenderTarget target, int page, int startX, int startY, int drawSizeX, int drawSizeY,
+                               boolean annotationRendering) {
+            if (target instanceof BitmapTarget) {
+                renderPage(((BitmapTarget) target).getBitmap(), page, startX, startY, drawSizeX, drawSizeY,
+                        annotationRendering);
+                return;
+            }
+            // Pdfium renders only into bitmaps, other targets get a copy of pixels
+            int width = target.getWidth(), height = target.getHeight();
+            Bitmap bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+            try {
+                renderPage(bitmap, page, startX, startY, drawSizeX, drawSizeY, annotationRendering);
+                int[] pixels = new int[width * height];
+                bitmap.getPixels(pixels, 0, width, 0, 0, width, height);
+                target.setPixels(pixels, 0, width, 0, 0, width, height);
+            } finally {
+                bitmap.recycle();
+            }
+        }
+
+        private void renderPage(Bitmap bitmap, int page, int startX, int startY, int drawSizeX, int drawSizeY,
+                                boolean annotationRendering) {
+            synchronized (pdfDocument) {
+                pdfiumCore.renderPageBitmap(pdfDocument, bitmap, page, startX, startY, drawSizeX, drawSizeY,
+                        annotationRendering);
+            }
+        }
+
+        @Override
+        public DocumentMeta getDocumentMeta() {
+            synchronized (pdfDocument) {
+                return toDocumentMeta(pdfiumCore.getDocumentMeta(pdfDocument));
+            }
+        }
+
+        @Override
+        public List<Bookmark> getTableOfContents() {
+            synchronized (pdfDocument) {
+                return toBookmarks(pdfiumCore.getTableOfContents(pdfDocument));
+            }
+        }
+
+        @Override
+        public void close() {
+            synchronized (pdfDocument) {
+                pdfiumCore.closeDocument(pdfDocument);
+            }
+        }
+    }
+}
@@ -0,0 +1,32 @@
+/**
+ * Copyright 2017 Bartosz Schiller
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.barteksc.pdfviewer.renderer;
+
+/**
+ * Pixels a page is rendered into by {@link DocumentHandle#renderPage(RenderTarget, int, int, int, int, int, boolean)}
+ */
+public interface RenderTarget {
+
+    int getWidth();
+
+    int getHeight();
+
+    /**
+     * Replace pixels in given rectangle with ARGB colors from the array,
+     * rows start every <code>stride</code> colors from <code>offset</code>
+     */
+    void setPixels(int[] pixels, int offset, int stride, int x, int y, int width, int height);
+}
@@ -0,0 +1,130 @@
+/**
+ * Copyright 2017 Bartosz Schiller
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.barteksc.pdfviewer.renderer;
+
+import android.content.Context;
+
+import com.github.barteksc.pdfviewer.model.Bookmark;
+import com.github.barteksc.pdfviewer.model.DocumentMeta;
+import com.github.barteksc.pdfviewer.source.DocumentSource;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Renderer which doesn't read the document source, but returns documents with given number
+ * of pages of the same size and fills render targets with a color after a delay.
+ * Useful for measuring scheduling, caching and loading without Pdfium.
+ */
+public class SyntheticRenderer implements PageRenderer {
+
+    private static final int WHITE = 0xFFFFFFFF;
+
+    private static final int LIGHT_GRAY = 0xFFCCCCCC;
+
+    private final int pageCount;
+
+    private final int pageWidth, pageHeight;
+
+    private final long renderDelay;
+
+    /**
+     * @param renderDelay time of rendering one part in milliseconds
+     */
+    public SyntheticRenderer(int pageCount, int pageWidth, int pageHeight, long renderDelay) {
+        this.pageCount = pageCount;
+        this.pageWidth = pageWidth;
+        this.pageHeight = pageHeight;
+        this.renderDelay = renderDelay;
+    }
+
+    @Override
+    public DocumentHandle openDocument(Context context, DocumentSource source, String password) {
+        return new SyntheticDocumentHandle();
+    }
+
+    private class SyntheticDocumentHandle implements DocumentHandle {
+
+        @Override
+        public int getPageCount() {
+            return pageCount;
+        }
+
+        @Override
+        public void openPage(int page) {
+            checkPage(page);
+        }
+
+        @Override
+        public void openPages(int from, int to) {
+            checkPage(from);
+            checkPage(to);
+        }
+
+        @Override
+        public boolean closePage(int page) {
+            return true;
+        }
+
+        @Override
+        public int getPageWidth(int page) {
+            return pageWidth;
+        }
+
+        @Override
+        public int getPageHeight(int page) {
+            return pageHeight;
+        }
+
+        @Override
+        public void renderPage(RenderTarget target, int page, int startX, int startY, int drawSizeX, int drawSizeY,
+                               boolean annotationRendering) {
+            if (renderDelay > 0) {
+                try {
+                    Thread.sleep(renderDelay);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            int[] row = new int[target.getWidth()];
+            Arrays.fill(row, page % 2 == 0 ? WHITE : LIGHT_GRAY);
+            for (int y = 0; y < target.getHeight(); y++) {
+                target.setPixels(row, 0, row.length, 0, y, row.length, 1);
+            }
+        }
+
+        @Override
+        public DocumentMeta getDocumentMeta() {
+            return null;
+        }
+
+        @Override
+        public List<Bookmark> getTableOfContents() {
+            return new ArrayList<>();
+        }
+
+        @Override
+        public void close() {
+        }
+
+        private void checkPage(int page) {
+            if (page < 0 || page >= pageCount) {
+                throw new IllegalArgumentException("Page " + page + " doesn't exist");
+            }
+        }
+    }
+}
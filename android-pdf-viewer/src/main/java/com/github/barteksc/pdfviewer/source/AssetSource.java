@@ -20,13 +20,11 @@ import android.content.Context;
 import android.os.ParcelFileDescriptor;
 
 import com.github.barteksc.pdfviewer.util.FileUtils;
-import com.shockwave.pdfium.PdfDocument;
-import com.shockwave.pdfium.PdfiumCore;
 
 import java.io.File;
 import java.io.IOException;
 
-public class AssetSource implements DocumentSource {
+public class AssetSource implements FingerprintSource {
 
     private final String assetName;
 
@@ -35,9 +33,14 @@ public class AssetSource implements DocumentSource {
     }
 
     @Override
-    public PdfDocument createDocument(Context context, PdfiumCore core, String password) throws IOException {
+    public DocumentInput openInput(Context context) throws IOException {
         File f = FileUtils.fileFromAsset(context, assetName);
         ParcelFileDescriptor pfd = ParcelFileDescriptor.open(f, ParcelFileDescriptor.MODE_READ_ONLY);
-        return core.newDocument(pfd, password);
+        return DocumentInput.fromFileDescriptor(pfd);
+    }
+
+    @Override
+    public String getFingerprint(Context context) {
+        return "asset:" + assetName + ":" + FileUtils.getApplicationUpdateTime(context);
     }
 }
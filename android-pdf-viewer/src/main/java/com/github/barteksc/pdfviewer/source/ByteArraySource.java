@@ -17,12 +17,9 @@ package com.github.barteksc.pdfviewer.source;
 
 import android.content.Context;
 
-import com.shockwave.pdfium.PdfDocument;
-import com.shockwave.pdfium.PdfiumCore;
+import com.github.barteksc.pdfviewer.util.Util;
 
-import java.io.IOException;
-
-public class ByteArraySource implements DocumentSource {
+public class ByteArraySource implements FingerprintSource {
 
     private byte[] data;
 
@@ -31,7 +28,12 @@ public class ByteArraySource implements DocumentSource {
     }
 
     @Override
-    public PdfDocument createDocument(Context context, PdfiumCore core, String password) throws IOException {
-        return core.newDocument(data, password);
+    public DocumentInput openInput(Context context) {
+        return DocumentInput.fromBytes(data);
+    }
+
+    @Override
+    public String getFingerprint(Context context) {
+        return "bytes:" + data.length + ":" + Util.md5(data);
     }
 }
@@ -0,0 +1,78 @@
+/**
+ * Copyright 2017 Bartosz Schiller
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.barteksc.pdfviewer.source;
+
+import android.os.ParcelFileDescriptor;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Content of a document returned by {@link DocumentSource#openInput(android.content.Context)},
+ * either bytes in memory or a file descriptor which the renderer reads on demand.
+ * The renderer takes ownership of the input, and closes the descriptor with the document
+ * or when the document cannot be opened.
+ */
+public final class DocumentInput implements Closeable {
+
+    private final byte[] bytes;
+
+    private ParcelFileDescriptor fileDescriptor;
+
+    private DocumentInput(byte[] bytes, ParcelFileDescriptor fileDescriptor) {
+        this.bytes = bytes;
+        this.fileDescriptor = fileDescriptor;
+    }
+
+    public static DocumentInput fromBytes(byte[] bytes) {
+        return new DocumentInput(bytes, null);
+    }
+
+    public static DocumentInput fromFileDescriptor(ParcelFileDescriptor fileDescriptor) {
+        return new DocumentInput(null, fileDescriptor);
+    }
+
+    /**
+     * @return content of the document, or null if it is read from {@link #getFileDescriptor()}
+     */
+    public byte[] getBytes() {
+        return bytes;
+    }
+
+    /**
+     * @return descriptor to read the document from, or null if it is in {@link #getBytes()}
+     */
+    public ParcelFileDescriptor getFileDescriptor() {
+        return fileDescriptor;
+    }
+
+    /**
+     * Take over the file descriptor, it is not closed by {@link #close()} anymore
+     */
+    public ParcelFileDescriptor detachFileDescriptor() {
+        ParcelFileDescriptor detached = fileDescriptor;
+        fileDescriptor = null;
+        return detached;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (fileDescriptor != null) {
+            fileDescriptor.close();
+            fileDescriptor = null;
+        }
+    }
+}
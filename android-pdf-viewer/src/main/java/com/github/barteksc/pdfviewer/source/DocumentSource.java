@@ -17,11 +17,16 @@ package com.github.barteksc.pdfviewer.source;
 
 import android.content.Context;
 
-import com.shockwave.pdfium.PdfDocument;
-import com.shockwave.pdfium.PdfiumCore;
-
 import java.io.IOException;
 
+/**
+ * Provides content of a document, independently of the {@link com.github.barteksc.pdfviewer.renderer.PageRenderer}
+ * which opens it
+ */
 public interface DocumentSource {
-    PdfDocument createDocument(Context context, PdfiumCore core, String password) throws IOException;
+
+    /**
+     * Called on a background thread when the document is opened
+     */
+    DocumentInput openInput(Context context) throws IOException;
 }
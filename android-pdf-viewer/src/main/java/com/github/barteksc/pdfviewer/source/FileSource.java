@@ -18,13 +18,11 @@ package com.github.barteksc.pdfviewer.source;
 import android.content.Context;
 import android.os.ParcelFileDescriptor;
 
-import com.shockwave.pdfium.PdfDocument;
-import com.shockwave.pdfium.PdfiumCore;
 
 import java.io.File;
 import java.io.IOException;
 
-public class FileSource implements DocumentSource {
+public class FileSource implements FingerprintSource {
 
     private File file;
 
@@ -33,8 +31,13 @@ public class FileSource implements DocumentSource {
     }
 
     @Override
-    public PdfDocument createDocument(Context context, PdfiumCore core, String password) throws IOException {
+    public DocumentInput openInput(Context context) throws IOException {
         ParcelFileDescriptor pfd = ParcelFileDescriptor.open(file, ParcelFileDescriptor.MODE_READ_ONLY);
-        return core.newDocument(pfd, password);
+        return DocumentInput.fromFileDescriptor(pfd);
+    }
+
+    @Override
+    public String getFingerprint(Context context) {
+        return "file:" + file.getAbsolutePath() + ":" + file.length() + ":" + file.lastModified();
     }
 }
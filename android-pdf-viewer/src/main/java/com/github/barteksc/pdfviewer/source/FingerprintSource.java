@@ -0,0 +1,35 @@
+/*
+ * Copyright (C) 2016 Bartosz Schiller.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.barteksc.pdfviewer.source;
+
+import android.content.Context;
+
+import java.io.IOException;
+
+/**
+ * Source which identifies its document across loads, required for caching rendered parts on disk
+ * and for sharing opened documents in {@link com.github.barteksc.pdfviewer.DocumentPool}.
+ */
+public interface FingerprintSource extends DocumentSource {
+
+    /**
+     * Called on a background thread before the document is opened
+     *
+     * @return string which changes whenever the document content changes,
+     * or null if the document cannot be identified
+     */
+    String getFingerprint(Context context) throws IOException;
+}
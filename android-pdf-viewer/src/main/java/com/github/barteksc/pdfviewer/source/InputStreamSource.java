@@ -16,14 +16,21 @@
 package com.github.barteksc.pdfviewer.source;
 
 import android.content.Context;
+import android.os.ParcelFileDescriptor;
 
-import com.github.barteksc.pdfviewer.util.Util;
-import com.shockwave.pdfium.PdfDocument;
-import com.shockwave.pdfium.PdfiumCore;
+import com.github.barteksc.pdfviewer.util.FileUtils;
 
+import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.channels.FileChannel;
 
+/**
+ * Renderers read documents from file descriptors on demand, so the stream is never loaded into memory.
+ * Streams reading from a file are passed to the renderer directly, other streams are copied to a temporary file
+ * which is removed when the document is closed.
+ */
 public class InputStreamSource implements DocumentSource {
 
     private InputStream inputStream;
@@ -33,7 +40,37 @@ public class InputStreamSource implements DocumentSource {
     }
 
     @Override
-    public PdfDocument createDocument(Context context, PdfiumCore core, String password) throws IOException {
-        return core.newDocument(Util.toByteArray(inputStream), password);
+    public DocumentInput openInput(Context context) throws IOException {
+        ParcelFileDescriptor pfd = openFileDescriptor(inputStream);
+        if (pfd == null) {
+            File file = FileUtils.copyToTempFile(context, inputStream);
+            try {
+                pfd = ParcelFileDescriptor.open(file, ParcelFileDescriptor.MODE_READ_ONLY);
+            } finally {
+                // Opened file stays readable until the document is closed
+                file.delete();
+            }
+        }
+        return DocumentInput.fromFileDescriptor(pfd);
+    }
+
+    /**
+     * @return descriptor of the file the stream reads from, or null if it cannot be read directly
+     */
+    private static ParcelFileDescriptor openFileDescriptor(InputStream inputStream) {
+        if (!(inputStream instanceof FileInputStream)) {
+            return null;
+        }
+        FileInputStream fileInputStream = (FileInputStream) inputStream;
+        try {
+            FileChannel channel = fileInputStream.getChannel();
+            // The whole file is read, so the stream must be at its start, and pipes cannot be read at random positions
+            if (channel.position() != 0 || channel.size() == 0) {
+                return null;
+            }
+            return ParcelFileDescriptor.dup(fileInputStream.getFD());
+        } catch (IOException e) {
+            return null;
+        }
     }
 }
@@ -19,12 +19,11 @@ import android.content.Context;
 import android.net.Uri;
 import android.os.ParcelFileDescriptor;
 
-import com.shockwave.pdfium.PdfDocument;
-import com.shockwave.pdfium.PdfiumCore;
 
+import java.io.File;
 import java.io.IOException;
 
-public class UriSource implements DocumentSource {
+public class UriSource implements FingerprintSource {
 
     private Uri uri;
 
@@ -33,8 +32,20 @@ public class UriSource implements DocumentSource {
     }
 
     @Override
-    public PdfDocument createDocument(Context context, PdfiumCore core, String password) throws IOException {
+    public DocumentInput openInput(Context context) throws IOException {
         ParcelFileDescriptor pfd = context.getContentResolver().openFileDescriptor(uri, "r");
-        return core.newDocument(pfd, password);
+        return DocumentInput.fromFileDescriptor(pfd);
+    }
+
+    /**
+     * Only file URIs are identified, content behind other URIs may change without notice
+     */
+    @Override
+    public String getFingerprint(Context context) {
+        if (!"file".equals(uri.getScheme()) || uri.getPath() == null) {
+            return null;
+        }
+        File file = new File(uri.getPath());
+        return "file:" + file.getAbsolutePath() + ":" + file.length() + ":" + file.lastModified();
     }
 }
@@ -19,24 +19,107 @@ public class Constants {
 
     public static boolean DEBUG_MODE = false;
 
-    /** Between 0 and 1, the thumbnails quality (default 0.3). Increasing this value may cause performance decrease */
+    /**
+     * Between 0 and 1, the thumbnails quality (default 0.3). Increasing this value may cause performance decrease.
+     * Can be overridden for single view with <code>Configurator#thumbnailRatio(float)</code>
+     */
     public static float THUMBNAIL_RATIO = 0.3f;
 
     /**
      * The size of the rendered parts (default 256)
      * Tinier : a little bit slower to have the whole page rendered but more reactive.
      * Bigger : user will have to wait longer to have the first visual results
+     * Can be overridden for single view with <code>Configurator#partSize(float)</code>
      */
     public static float PART_SIZE = 256;
 
-    /** Number of preloaded rows or columns */
+    /**
+     * Ratio between consecutive zoom levels parts are rendered at (default square root of 2).
+     * Parts are rendered at the level nearest to the current zoom and drawn scaled, so small zoom changes
+     * don't need new parts, and parts of other levels can be shown while the current level renders
+     */
+    public static float ZOOM_LEVEL_RATIO = (float) Math.sqrt(2);
+
+    /**
+     * Parts are rendered at a new zoom level only when parts of the current level would be scaled
+     * by more than this factor (default 1.25). Values close to 1 give sharper parts, bigger values
+     * give fewer renders while zooming
+     */
+    public static float RENDER_SCALE_THRESHOLD = 1.25f;
+
+    /** Number of preloaded rows or columns, can be overridden with <code>Configurator#preloadCount(int)</code> */
     public static int PRELOAD_COUNT = 1;
 
+    /**
+     * Minimum scroll velocity in pixels per second (default 1000), above which parts are prefetched
+     * where the view is predicted to be when the visible parts are rendered
+     */
+    public static float PREFETCH_MIN_VELOCITY = 1000;
+
+    /** Maximum distance of prefetching in view lengths (default 3) */
+    public static float PREFETCH_MAX_VIEWS = 3;
+
+    /**
+     * Minimum time in milliseconds between loading parts during scroll animations and flings (default 100).
+     * Can be overridden for single view with <code>Configurator#animationLoadInterval(long)</code>
+     */
+    public static long ANIMATION_LOAD_INTERVAL = 100;
+
+    /**
+     * Number of pages measured at once (default 20). Pages are measured in the background when nothing
+     * is rendered, until then they have the size of the default page. Measuring starts with the batch
+     * of the default page and continues with batches after and before it in turn.
+     */
+    public static int MEASURE_PAGES_BATCH = 20;
+
+    /**
+     * Maximum number of pages kept open by one view (default 50), the least recently rendered pages
+     * are closed to free native memory. Can be overridden with <code>Configurator#maxOpenPages(int)</code>
+     */
+    public static int MAX_OPEN_PAGES = 50;
+
+    /** Number of pages opened in the background ahead of the visible ones in the scroll direction (default 2) */
+    public static int OPEN_PAGES_AHEAD = 2;
+
+    /** Number of threads opening documents for all views, unless a view has its own executor (default 2) */
+    public static int LOAD_THREADS = 2;
+
+    /**
+     * Number of documents kept open after their views are recycled (default 3), so loading them again is faster.
+     * Can be changed with {@link com.github.barteksc.pdfviewer.DocumentPool#setMaxIdleCount(int)}
+     */
+    public static int DOCUMENT_POOL_SIZE = 3;
+
+    /** Time in milliseconds after which unused documents are closed (default 60000) */
+    public static long DOCUMENT_POOL_IDLE_TIMEOUT = 60000;
+
     public static class Cache {
 
-        /** The size of the cache (number of bitmaps kept) */
+        /**
+         * @deprecated the cache is limited by bytes, see {@link #CACHE_MEMORY_FRACTION}
+         */
+        @Deprecated
         public static int CACHE_SIZE = 120;
 
+        /**
+         * Fraction of {@link android.app.ActivityManager#getMemoryClass()} used as default size of the cache
+         * in bytes (default 0.25). Can be overridden for single view with <code>Configurator#cacheSize(long)</code>
+         */
+        public static float CACHE_MEMORY_FRACTION = 0.25f;
+
+        /**
+         * Fraction of {@link android.app.ActivityManager#getMemoryClass()} used as default size of the pool
+         * of bitmaps reused for rendering (default 0.05). Can be overridden with <code>Configurator#bitmapPoolSize(long)</code>
+         */
+        public static float BITMAP_POOL_MEMORY_FRACTION = 0.05f;
+
+        /** Memory class in megabytes assumed when the real one cannot be read */
+        public static int MIN_MEMORY_CLASS = 16;
+
+        /**
+         * @deprecated thumbnails share the byte limit of the cache, see {@link #CACHE_MEMORY_FRACTION}
+         */
+        @Deprecated
         public static int THUMBNAILS_CACHE_SIZE = 6;
     }
 
@@ -16,25 +16,158 @@
 package com.github.barteksc.pdfviewer.util;
 
 import android.content.Context;
+import android.content.pm.PackageManager;
+import android.content.res.AssetFileDescriptor;
 
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.channels.FileChannel;
 
 public class FileUtils {
 
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final String ASSET_SUFFIX = "-pdfview.pdf";
+
     private FileUtils() {
         // Prevents instantiation
     }
 
+    /**
+     * Extract asset to the cache directory, or reuse the file extracted before.
+     * Name of the extracted file contains the time the application was updated, so the file
+     * is extracted again only after an update. The file is written under a temporary name and renamed
+     * when it's complete, so concurrent loads never see a partially written file.
+     */
     public static File fileFromAsset(Context context, String assetName) throws IOException {
-        File outFile = new File(context.getCacheDir(), assetName + "-pdfview.pdf");
+        File baseFile = new File(context.getCacheDir(), assetName);
+        File dir = baseFile.getParentFile();
         if (assetName.contains("/")) {
-            outFile.getParentFile().mkdirs();
+            dir.mkdirs();
+        }
+        String baseName = baseFile.getName();
+        File outFile = new File(dir, baseName + "-" + getApplicationUpdateTime(context) + ASSET_SUFFIX);
+
+        AssetFileDescriptor afd = openAssetFd(context, assetName);
+        try {
+            if (outFile.exists() && (afd == null || outFile.length() == afd.getLength())) {
+                return outFile;
+            }
+
+            File tempFile = File.createTempFile("pdfview", ".tmp", dir);
+            try {
+                if (afd != null) {
+                    copy(afd, tempFile);
+                } else {
+                    copy(context.getAssets().open(assetName), tempFile);
+                }
+                if (!tempFile.renameTo(outFile) && !outFile.exists()) {
+                    throw new IOException("Cannot rename " + tempFile + " to " + outFile);
+                }
+            } finally {
+                tempFile.delete();
+            }
+        } finally {
+            if (afd != null) {
+                afd.close();
+            }
+        }
+        deleteOtherVersions(dir, baseName, outFile);
+        return outFile;
+    }
+
+    /**
+     * @return descriptor of the asset, or null if the asset is compressed
+     */
+    private static AssetFileDescriptor openAssetFd(Context context, String assetName) {
+        try {
+            return context.getAssets().openFd(assetName);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return time the application was installed or last updated
+     */
+    public static long getApplicationUpdateTime(Context context) {
+        try {
+            return context.getPackageManager().getPackageInfo(context.getPackageName(), 0).lastUpdateTime;
+        } catch (PackageManager.NameNotFoundException e) {
+            return new File(context.getApplicationInfo().sourceDir).lastModified();
+        }
+    }
+
+    /**
+     * Delete assets extracted from previous versions of the application
+     */
+    private static void deleteOtherVersions(File dir, String baseName, File current) {
+        File[] files = dir.listFiles();
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            String name = file.getName();
+            if (file.equals(current) || !name.startsWith(baseName) || !name.endsWith(ASSET_SUFFIX)) {
+                continue;
+            }
+            String version = name.substring(baseName.length(), name.length() - ASSET_SUFFIX.length());
+            if (version.isEmpty() || version.matches("-\\d+")) {
+                file.delete();
+            }
+        }
+    }
+
+    /**
+     * Copy uncompressed asset by transferring bytes between channels, without copying them to Java memory
+     */
+    private static void copy(AssetFileDescriptor afd, File output) throws IOException {
+        FileInputStream inputStream = null;
+        FileOutputStream outputStream = null;
+        try {
+            inputStream = afd.createInputStream();
+            outputStream = new FileOutputStream(output);
+            FileChannel source = inputStream.getChannel();
+            FileChannel target = outputStream.getChannel();
+            long start = afd.getStartOffset();
+            long length = afd.getLength();
+            long position = 0;
+            while (position < length) {
+                long transferred = source.transferTo(start + position, length - position, target);
+                if (transferred <= 0) {
+                    throw new IOException("Unexpected end of asset");
+                }
+                position += transferred;
+            }
+        } finally {
+            try {
+                if (inputStream != null) {
+                    inputStream.close();
+                }
+            } finally {
+                if (outputStream != null) {
+                    outputStream.close();
+                }
+            }
+        }
+    }
+
+    /**
+     * Copy the stream to a new temporary file in the cache directory. The stream is copied in small chunks,
+     * so used memory doesn't depend on its length. The stream is closed afterwards.
+     */
+    public static File copyToTempFile(Context context, InputStream inputStream) throws IOException {
+        File outFile = File.createTempFile("pdfview", ".pdf", context.getCacheDir());
+        try {
+            copy(inputStream, outFile);
+        } catch (IOException e) {
+            outFile.delete();
+            throw e;
         }
-        copy(context.getAssets().open(assetName), outFile);
         return outFile;
     }
 
@@ -43,7 +176,7 @@ public class FileUtils {
         try {
             outputStream = new FileOutputStream(output);
             int read = 0;
-            byte[] bytes = new byte[1024];
+            byte[] bytes = new byte[BUFFER_SIZE];
             while ((read = inputStream.read(bytes)) != -1) {
                 outputStream.write(bytes, 0, read);
             }
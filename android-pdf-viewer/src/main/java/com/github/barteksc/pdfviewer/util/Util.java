@@ -15,12 +15,18 @@
  */
 package com.github.barteksc.pdfviewer.util;
 
+import android.app.ActivityManager;
 import android.content.Context;
+import android.graphics.Bitmap;
+import android.os.Build;
+import android.os.Trace;
 import android.util.TypedValue;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 
 public class Util {
     private static final int DEFAULT_BUFFER_SIZE = 1024 * 4;
@@ -29,6 +35,103 @@ public class Util {
         return (int) TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_DIP, dp, context.getResources().getDisplayMetrics());
     }
 
+    /**
+     * Number of bytes used to store a single pixel of given config
+     */
+    public static int getBytesPerPixel(Bitmap.Config config) {
+        if (config == null) {
+            return 4;
+        }
+        switch (config) {
+            case ALPHA_8:
+                return 1;
+            case RGB_565:
+            case ARGB_4444:
+                return 2;
+            default:
+                return 4;
+        }
+    }
+
+    /**
+     * Number of bytes needed to store bitmap of given size and config
+     */
+    public static long getByteCount(int width, int height, Bitmap.Config config) {
+        return (long) width * height * getBytesPerPixel(config);
+    }
+
+    /**
+     * Number of bytes used by given bitmap, {@link Bitmap#getByteCount()} is not available before API 12
+     */
+    public static long getByteCount(Bitmap bitmap) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.HONEYCOMB_MR1) {
+            return bitmap.getByteCount();
+        }
+        return (long) bitmap.getRowBytes() * bitmap.getHeight();
+    }
+
+    /**
+     * Default size of the cache in bytes, as a fraction of the memory available to the application
+     *
+     * @see Constants.Cache#CACHE_MEMORY_FRACTION
+     */
+    public static long getDefaultCacheSize(Context context) {
+        return (long) (getMemoryClassBytes(context) * Constants.Cache.CACHE_MEMORY_FRACTION);
+    }
+
+    /**
+     * Default size of the bitmap pool in bytes, as a fraction of the memory available to the application
+     *
+     * @see Constants.Cache#BITMAP_POOL_MEMORY_FRACTION
+     */
+    public static long getDefaultBitmapPoolSize(Context context) {
+        return (long) (getMemoryClassBytes(context) * Constants.Cache.BITMAP_POOL_MEMORY_FRACTION);
+    }
+
+    private static long getMemoryClassBytes(Context context) {
+        ActivityManager am = (ActivityManager) context.getSystemService(Context.ACTIVITY_SERVICE);
+        long memoryClass = am != null ? am.getMemoryClass() : Constants.Cache.MIN_MEMORY_CLASS;
+        memoryClass = Math.max(memoryClass, Constants.Cache.MIN_MEMORY_CLASS);
+        return memoryClass * 1024 * 1024;
+    }
+
+    /**
+     * @return hex encoded MD5 digest of the data
+     */
+    public static String md5(byte[] data) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        digest.update(data);
+        byte[] hash = digest.digest();
+        StringBuilder builder = new StringBuilder(hash.length * 2);
+        for (byte b : hash) {
+            builder.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Begin a section visible in systrace, does nothing before API 18
+     */
+    public static void beginTraceSection(String name) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2) {
+            Trace.beginSection(name);
+        }
+    }
+
+    /**
+     * End the section started on the same thread with {@link #beginTraceSection(String)}
+     */
+    public static void endTraceSection() {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2) {
+            Trace.endSection();
+        }
+    }
+
     public static byte[] toByteArray(InputStream inputStream) throws IOException {
         ByteArrayOutputStream os = new ByteArrayOutputStream();
         byte[] buffer = new byte[DEFAULT_BUFFER_SIZE];
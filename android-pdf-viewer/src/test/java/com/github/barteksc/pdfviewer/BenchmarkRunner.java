@@ -0,0 +1,97 @@
+/**
+ * Copyright 2017 Bartosz Schiller
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.barteksc.pdfviewer;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Runs an operation in warm-up rounds and measured rounds, then prints the median time of one operation.
+ * Benchmarks run with <code>./gradlew :android-pdf-viewer:benchmark</code>, which skips other tests.
+ */
+final class BenchmarkRunner {
+
+    private static final int WARM_UP_ROUNDS = 5;
+
+    private static final int ROUNDS = 10;
+
+    /**
+     * Length of one round in nanoseconds
+     */
+    private static final long ROUND_TIME = 100 * 1000 * 1000L;
+
+    /**
+     * Results of operations, written so that the compiler cannot remove them
+     */
+    private static volatile int sink;
+
+    interface Operation {
+
+        /**
+         * @param iteration number of the call within the round
+         * @return any value computed by the operation
+         */
+        int run(int iteration);
+    }
+
+    private BenchmarkRunner() {
+        // Prevents instantiation
+    }
+
+    /**
+     * @return median time of one operation in nanoseconds
+     */
+    static double run(String name, Operation operation) {
+        int iterations = calibrate(operation);
+        for (int i = 0; i < WARM_UP_ROUNDS; i++) {
+            runRound(operation, iterations);
+        }
+        long[] times = new long[ROUNDS];
+        for (int i = 0; i < ROUNDS; i++) {
+            times[i] = runRound(operation, iterations);
+        }
+        Arrays.sort(times);
+        double time = (double) times[ROUNDS / 2] / iterations;
+        System.out.println(String.format(Locale.US, "%-60s %14.1f ns/op  (%d ops per round, spread %.1f%%)",
+                name, time, iterations, 100.0 * (times[ROUNDS - 1] - times[0]) / times[ROUNDS / 2]));
+        return time;
+    }
+
+    /**
+     * @return number of operations which take about {@link #ROUND_TIME}
+     */
+    private static int calibrate(Operation operation) {
+        int iterations = 1;
+        while (true) {
+            long time = Math.max(1, runRound(operation, iterations));
+            if (time >= ROUND_TIME / 10 || iterations >= 1 << 28) {
+                return (int) Math.max(1, Math.min(Integer.MAX_VALUE, iterations * ROUND_TIME / time));
+            }
+            iterations *= 2;
+        }
+    }
+
+    private static long runRound(Operation operation, int iterations) {
+        int result = 0;
+        long startTime = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            result += operation.run(i);
+        }
+        long time = System.nanoTime() - startTime;
+        sink = result;
+        return time;
+    }
+}
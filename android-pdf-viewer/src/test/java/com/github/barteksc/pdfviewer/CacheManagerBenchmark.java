@@ -0,0 +1,150 @@
+/**
+ * Copyright 2017 Bartosz Schiller
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.barteksc.pdfviewer;
+
+import android.graphics.Bitmap;
+import android.graphics.RectF;
+
+import com.github.barteksc.pdfviewer.model.PagePart;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+/**
+ * Cache operations of one loading pass, at cache sizes of small and big screens
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE)
+public class CacheManagerBenchmark {
+
+    private static final int PART_SIZE = 16;
+
+    /**
+     * Bytes of one ARGB_8888 part
+     */
+    private static final long PART_BYTES = PART_SIZE * PART_SIZE * 4;
+
+    /**
+     * Parts in a row and in a column of a page
+     */
+    private static final int GRID = 4;
+
+    private static final int[] PART_COUNTS = {120, 500, 2000};
+
+    @Test
+    public void cachePart() {
+        for (final int partCount : PART_COUNTS) {
+            final PagePart[] parts = createParts(partCount);
+            BenchmarkRunner.run("CacheManager.cachePart, " + partCount + " parts, per part", new BenchmarkRunner.Operation() {
+                private CacheManager cacheManager;
+
+                @Override
+                public int run(int iteration) {
+                    int index = iteration % partCount;
+                    if (index == 0) {
+                        cacheManager = createCacheManager(partCount);
+                    }
+                    cacheManager.cachePart(parts[index]);
+                    return index;
+                }
+            });
+        }
+    }
+
+    @Test
+    public void upPartIfContained() {
+        for (final int partCount : PART_COUNTS) {
+            final CacheManager cacheManager = createCacheManager(partCount);
+            PagePart[] parts = createParts(partCount);
+            for (PagePart part : parts) {
+                cacheManager.cachePart(part);
+            }
+            final RectF[] bounds = createBounds();
+            BenchmarkRunner.run("CacheManager.upPartIfContained, " + partCount + " parts", new BenchmarkRunner.Operation() {
+                @Override
+                public int run(int iteration) {
+                    // hits and misses alternate, pages past the cached ones are missing
+                    int index = iteration % (2 * partCount);
+                    int page = index / (GRID * GRID);
+                    boolean found = cacheManager.upPartIfContained(page, page, PART_SIZE, PART_SIZE,
+                            bounds[index % (GRID * GRID)], iteration);
+                    return found ? 1 : 0;
+                }
+            });
+        }
+    }
+
+    @Test
+    public void loadingPass() {
+        for (final int partCount : PART_COUNTS) {
+            final CacheManager cacheManager = createCacheManager(partCount);
+            PagePart[] parts = createParts(partCount);
+            for (PagePart part : parts) {
+                cacheManager.cachePart(part);
+            }
+            final RectF[] bounds = createBounds();
+            // parts of three pages are visible, the pages move by one on every pass
+            final int pageCount = partCount / (GRID * GRID);
+            BenchmarkRunner.run("CacheManager.makeANewSet + 48 lookups, " + partCount + " parts",
+                    new BenchmarkRunner.Operation() {
+                        @Override
+                        public int run(int iteration) {
+                            cacheManager.makeANewSet();
+                            int found = 0;
+                            for (int i = 0; i < 3 * GRID * GRID; i++) {
+                                int page = (iteration + i / (GRID * GRID)) % pageCount;
+                                if (cacheManager.upPartIfContained(page, page, PART_SIZE, PART_SIZE,
+                                        bounds[i % (GRID * GRID)], i)) {
+                                    found++;
+                                }
+                            }
+                            return found + cacheManager.getDrawableParts().size();
+                        }
+                    });
+        }
+    }
+
+    private static CacheManager createCacheManager(int partCount) {
+        return new CacheManager(partCount * PART_BYTES, new BitmapPool(0));
+    }
+
+    /**
+     * @return parts of consecutive pages, each page split into {@link #GRID} x {@link #GRID} parts
+     */
+    private static PagePart[] createParts(int partCount) {
+        RectF[] bounds = createBounds();
+        PagePart[] parts = new PagePart[partCount];
+        for (int i = 0; i < partCount; i++) {
+            int page = i / (GRID * GRID);
+            Bitmap bitmap = Bitmap.createBitmap(PART_SIZE, PART_SIZE, Bitmap.Config.ARGB_8888);
+            parts[i] = new PagePart(page, page, bitmap, PART_SIZE, PART_SIZE, bounds[i % (GRID * GRID)], false, i);
+        }
+        return parts;
+    }
+
+    private static RectF[] createBounds() {
+        RectF[] bounds = new RectF[GRID * GRID];
+        for (int row = 0; row < GRID; row++) {
+            for (int column = 0; column < GRID; column++) {
+                bounds[row * GRID + column] = new RectF((float) column / GRID, (float) row / GRID,
+                        (float) (column + 1) / GRID, (float) (row + 1) / GRID);
+            }
+        }
+        return bounds;
+    }
+}
@@ -0,0 +1,152 @@
+/**
+ * Copyright 2017 Bartosz Schiller
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.barteksc.pdfviewer;
+
+import android.graphics.Bitmap;
+import android.graphics.RectF;
+
+import com.github.barteksc.pdfviewer.model.PagePart;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE)
+public class CacheManagerTest {
+
+    private static final int PART_SIZE = 16;
+
+    /**
+     * Bytes of one ARGB_8888 part
+     */
+    private static final long PART_BYTES = PART_SIZE * PART_SIZE * 4;
+
+    private BitmapPool bitmapPool;
+
+    @Before
+    public void setUp() {
+        bitmapPool = new BitmapPool(100 * PART_BYTES);
+    }
+
+    @Test
+    public void findsPartByEqualKey() {
+        CacheManager cacheManager = new CacheManager(10 * PART_BYTES, bitmapPool);
+        cacheManager.cachePart(createPart(0, 0, 1));
+
+        // a new, equal rectangle finds the part
+        assertTrue(cacheManager.upPartIfContained(0, 0, PART_SIZE, PART_SIZE, bounds(0), 2));
+        assertFalse(cacheManager.upPartIfContained(0, 0, PART_SIZE, PART_SIZE, bounds(1), 2));
+        assertFalse(cacheManager.upPartIfContained(1, 1, PART_SIZE, PART_SIZE, bounds(0), 2));
+        assertEquals(1, cacheManager.getHitCount());
+        assertEquals(2, cacheManager.getMissCount());
+    }
+
+    @Test
+    public void duplicateKeyReplacesPart() {
+        CacheManager cacheManager = new CacheManager(10 * PART_BYTES, bitmapPool);
+        PagePart first = createPart(0, 0, 1);
+        PagePart second = createPart(0, 0, 2);
+        cacheManager.cachePart(first);
+        cacheManager.cachePart(second);
+
+        List<PagePart> parts = cacheManager.getPageParts();
+        assertEquals(1, parts.size());
+        assertSame(second, parts.get(0));
+        assertEquals(PART_BYTES, cacheManager.getSize());
+        // bitmap of the replaced part is reused
+        assertSame(first.getRenderedBitmap(), bitmapPool.get(PART_SIZE, PART_SIZE, Bitmap.Config.ARGB_8888));
+    }
+
+    @Test
+    public void evictsActivePartsInCacheOrder() {
+        CacheManager cacheManager = new CacheManager(2 * PART_BYTES, bitmapPool);
+        PagePart part1 = createPart(0, 0, 1);
+        PagePart part2 = createPart(0, 1, 2);
+        PagePart part3 = createPart(0, 2, 3);
+        cacheManager.cachePart(part2);
+        cacheManager.cachePart(part1);
+        cacheManager.cachePart(part3);
+
+        List<PagePart> parts = cacheManager.getPageParts();
+        assertEquals(2, parts.size());
+        assertFalse(parts.contains(part1));
+        assertEquals(1, cacheManager.getEvictionCount());
+        assertEquals(2 * PART_BYTES, cacheManager.getSize());
+    }
+
+    @Test
+    public void evictsPassivePartsFirst() {
+        CacheManager cacheManager = new CacheManager(3 * PART_BYTES, bitmapPool);
+        PagePart passive1 = createPart(0, 0, 1);
+        PagePart passive2 = createPart(0, 1, 2);
+        cacheManager.cachePart(passive1);
+        cacheManager.cachePart(passive2);
+        cacheManager.makeANewSet();
+
+        // active parts with lower order than passive ones still stay
+        PagePart active1 = createPart(1, 0, 0);
+        PagePart active2 = createPart(1, 1, 0);
+        cacheManager.cachePart(active1);
+        cacheManager.cachePart(active2);
+
+        List<PagePart> parts = cacheManager.getPageParts();
+        assertEquals(3, parts.size());
+        assertFalse(parts.contains(passive1));
+        assertTrue(parts.contains(passive2));
+        assertTrue(parts.contains(active1));
+        assertTrue(parts.contains(active2));
+    }
+
+    @Test
+    public void passivePartBecomesActiveWhenRequestedAgain() {
+        CacheManager cacheManager = new CacheManager(2 * PART_BYTES, bitmapPool);
+        PagePart reused = createPart(0, 0, 1);
+        PagePart passive = createPart(0, 1, 2);
+        cacheManager.cachePart(reused);
+        cacheManager.cachePart(passive);
+        cacheManager.makeANewSet();
+
+        assertTrue(cacheManager.upPartIfContained(0, 0, PART_SIZE, PART_SIZE, bounds(0), 5));
+        assertEquals(5, reused.getCacheOrder());
+        cacheManager.cachePart(createPart(1, 0, 6));
+
+        List<PagePart> parts = cacheManager.getPageParts();
+        assertTrue(parts.contains(reused));
+        assertFalse(parts.contains(passive));
+    }
+
+    private PagePart createPart(int page, int column, int cacheOrder) {
+        Bitmap bitmap = Bitmap.createBitmap(PART_SIZE, PART_SIZE, Bitmap.Config.ARGB_8888);
+        return new PagePart(page, page, bitmap, PART_SIZE, PART_SIZE, bounds(column), false, cacheOrder);
+    }
+
+    /**
+     * Bounds of a part in a row of four parts
+     */
+    private static RectF bounds(int column) {
+        return new RectF(column * 0.25f, 0, (column + 1) * 0.25f, 1);
+    }
+}
@@ -0,0 +1,256 @@
+/**
+ * Copyright 2017 Bartosz Schiller
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.barteksc.pdfviewer;
+
+import android.content.Context;
+
+import com.github.barteksc.pdfviewer.model.Bookmark;
+import com.github.barteksc.pdfviewer.model.DocumentMeta;
+import com.github.barteksc.pdfviewer.renderer.DocumentHandle;
+import com.github.barteksc.pdfviewer.renderer.PageRenderer;
+import com.github.barteksc.pdfviewer.renderer.RenderTarget;
+import com.github.barteksc.pdfviewer.renderer.SyntheticRenderer;
+import com.github.barteksc.pdfviewer.source.DocumentSource;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Renderer of {@link SyntheticRenderer} pages, which counts calls of the documents it opens
+ */
+class CountingRenderer implements PageRenderer {
+
+    private final SyntheticRenderer renderer;
+
+    private long openDelay = 0;
+
+    private long measureDelay = 0;
+
+    private long renderDelay = 0;
+
+    private Object renderLock;
+
+    private int openedDocuments = 0;
+
+    private int closedDocuments = 0;
+
+    private int openedPages = 0;
+
+    private int tableOfContentsReads = 0;
+
+    /**
+     * Pages in the order their sizes were read
+     */
+    private final List<Integer> measuredPages = new ArrayList<>();
+
+    /**
+     * Pages in the order they were rendered
+     */
+    private final List<Integer> renderedPages = new ArrayList<>();
+
+    /**
+     * Width of the whole page in every render, it changes with the zoom parts are rendered at
+     */
+    private final List<Integer> renderedPageWidths = new ArrayList<>();
+
+    CountingRenderer(int pageCount, int pageWidth, int pageHeight) {
+        renderer = new SyntheticRenderer(pageCount, pageWidth, pageHeight, 0);
+    }
+
+    @Override
+    public DocumentHandle openDocument(Context context, DocumentSource source, String password)
+            throws IOException {
+        long delay;
+        synchronized (this) {
+            openedDocuments++;
+            delay = openDelay;
+        }
+        sleep(delay);
+        return new CountingDocumentHandle(renderer.openDocument(context, source, password));
+    }
+
+    /**
+     * @param openDelay time of opening a document in milliseconds
+     */
+    synchronized void setOpenDelay(long openDelay) {
+        this.openDelay = openDelay;
+    }
+
+    /**
+     * @param measureDelay time of reading the size of one page in milliseconds
+     */
+    synchronized void setMeasureDelay(long measureDelay) {
+        this.measureDelay = measureDelay;
+    }
+
+    /**
+     * @param renderDelay time of rendering one part in milliseconds
+     */
+    synchronized void setRenderDelay(long renderDelay) {
+        this.renderDelay = renderDelay;
+    }
+
+    /**
+     * Render parts of all documents while holding given lock, like Pdfium does, or in parallel if null
+     */
+    synchronized void setRenderLock(Object renderLock) {
+        this.renderLock = renderLock;
+    }
+
+    synchronized int getOpenedDocuments() {
+        return openedDocuments;
+    }
+
+    synchronized int getClosedDocuments() {
+        return closedDocuments;
+    }
+
+    synchronized int getOpenedPages() {
+        return openedPages;
+    }
+
+    synchronized int getTableOfContentsReads() {
+        return tableOfContentsReads;
+    }
+
+    synchronized List<Integer> getMeasuredPages() {
+        return new ArrayList<>(measuredPages);
+    }
+
+    synchronized List<Integer> getRenderedPages() {
+        return new ArrayList<>(renderedPages);
+    }
+
+    synchronized List<Integer> getRenderedPageWidths() {
+        return new ArrayList<>(renderedPageWidths);
+    }
+
+    synchronized int getRenderCount() {
+        return renderedPages.size();
+    }
+
+    private class CountingDocumentHandle implements DocumentHandle {
+
+        private final DocumentHandle document;
+
+        CountingDocumentHandle(DocumentHandle document) {
+            this.document = document;
+        }
+
+        @Override
+        public int getPageCount() {
+            return document.getPageCount();
+        }
+
+        @Override
+        public void openPage(int page) {
+            synchronized (CountingRenderer.this) {
+                openedPages++;
+            }
+            document.openPage(page);
+        }
+
+        @Override
+        public void openPages(int from, int to) {
+            synchronized (CountingRenderer.this) {
+                openedPages += to - from + 1;
+            }
+            document.openPages(from, to);
+        }
+
+        @Override
+        public boolean closePage(int page) {
+            return document.closePage(page);
+        }
+
+        @Override
+        public int getPageWidth(int page) {
+            long delay;
+            synchronized (CountingRenderer.this) {
+                measuredPages.add(page);
+                delay = measureDelay;
+            }
+            sleep(delay);
+            return document.getPageWidth(page);
+        }
+
+        @Override
+        public int getPageHeight(int page) {
+            return document.getPageHeight(page);
+        }
+
+        @Override
+        public void renderPage(RenderTarget target, int page, int startX, int startY, int drawSizeX, int drawSizeY,
+                               boolean annotationRendering) {
+            long delay;
+            Object lock;
+            synchronized (CountingRenderer.this) {
+                delay = renderDelay;
+                lock = renderLock;
+            }
+            if (lock != null) {
+                synchronized (lock) {
+                    render(target, page, startX, startY, drawSizeX, drawSizeY, annotationRendering, delay);
+                }
+            } else {
+                render(target, page, startX, startY, drawSizeX, drawSizeY, annotationRendering, delay);
+            }
+        }
+
+        private void render(RenderTarget target, int page, int startX, int startY, int drawSizeX, int drawSizeY,
+                            boolean annotationRendering, long delay) {
+            sleep(delay);
+            document.renderPage(target, page, startX, startY, drawSizeX, drawSizeY, annotationRendering);
+            // counted when finished, so that a part is rendered when the count includes it
+            synchronized (CountingRenderer.this) {
+                renderedPages.add(page);
+                renderedPageWidths.add(drawSizeX);
+            }
+        }
+
+        @Override
+        public DocumentMeta getDocumentMeta() {
+            return document.getDocumentMeta();
+        }
+
+        @Override
+        public List<Bookmark> getTableOfContents() {
+            synchronized (CountingRenderer.this) {
+                tableOfContentsReads++;
+            }
+            return document.getTableOfContents();
+        }
+
+        @Override
+        public void close() {
+            synchronized (CountingRenderer.this) {
+                closedDocuments++;
+            }
+            document.close();
+        }
+    }
+
+    private static void sleep(long delay) {
+        if (delay > 0) {
+            try {
+                Thread.sleep(delay);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
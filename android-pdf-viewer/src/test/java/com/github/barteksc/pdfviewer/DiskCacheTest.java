@@ -0,0 +1,204 @@
+/**
+ * Copyright 2017 Bartosz Schiller
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.barteksc.pdfviewer;
+
+import android.graphics.Bitmap;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.io.File;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE)
+public class DiskCacheTest {
+
+    private static final int PART_SIZE = 16;
+
+    /**
+     * Bytes of one ARGB_8888 part
+     */
+    private static final long PART_BYTES = PART_SIZE * PART_SIZE * 4;
+
+    private File directory;
+
+    private DiskCache diskCache;
+
+    private BitmapPool bitmapPool;
+
+    @Before
+    public void setUp() {
+        directory = new File(RuntimeEnvironment.application.getCacheDir(), "disk-cache-test-" + System.nanoTime());
+        diskCache = new DiskCache(directory);
+        diskCache.setMaxSize(10 * PART_BYTES);
+        bitmapPool = new BitmapPool(10 * PART_BYTES);
+    }
+
+    @After
+    public void tearDown() throws InterruptedException {
+        diskCache.awaitWrites();
+        diskCache.clear();
+        directory.delete();
+    }
+
+    @Test
+    public void readsWrittenPart() throws InterruptedException {
+        diskCache.put("a", createBitmap());
+        diskCache.awaitWrites();
+
+        Bitmap bitmap = get("a");
+        assertNotNull(bitmap);
+        assertEquals(PART_SIZE, bitmap.getWidth());
+        assertEquals(PART_SIZE, bitmap.getHeight());
+        assertEquals(PART_BYTES, diskCache.getSize());
+        assertEquals(1, diskCache.getHitCount());
+    }
+
+    @Test
+    public void missesPartOfOtherSize() throws InterruptedException {
+        diskCache.put("a", createBitmap());
+        diskCache.awaitWrites();
+
+        assertNull(get("b"));
+        assertNull(diskCache.get("a", PART_SIZE * 2, PART_SIZE, Bitmap.Config.ARGB_8888, bitmapPool));
+        assertEquals(0, diskCache.getHitCount());
+        assertEquals(2, diskCache.getMissCount());
+    }
+
+    @Test
+    public void trimsLeastRecentlyUsedParts() throws InterruptedException {
+        diskCache.setMaxSize(2 * PART_BYTES);
+        diskCache.put("a", createBitmap());
+        diskCache.put("b", createBitmap());
+        diskCache.awaitWrites();
+
+        // reading makes "a" recently used, so "b" is deleted
+        assertNotNull(get("a"));
+        diskCache.put("c", createBitmap());
+        diskCache.awaitWrites();
+
+        assertEquals(2 * PART_BYTES, diskCache.getSize());
+        assertNull(get("b"));
+        assertNotNull(get("a"));
+        assertNotNull(get("c"));
+        assertEquals(2, directory.list().length);
+    }
+
+    @Test
+    public void trimsWhenMaxSizeDecreases() throws InterruptedException {
+        diskCache.put("a", createBitmap());
+        diskCache.put("b", createBitmap());
+        diskCache.awaitWrites();
+
+        diskCache.setMaxSize(PART_BYTES);
+
+        assertEquals(PART_BYTES, diskCache.getSize());
+        assertNull(get("a"));
+        assertNotNull(get("b"));
+    }
+
+    @Test
+    public void findsPartsWrittenBeforeRestart() throws InterruptedException {
+        diskCache.put("a", createBitmap());
+        diskCache.awaitWrites();
+
+        DiskCache restarted = new DiskCache(directory);
+        restarted.setMaxSize(10 * PART_BYTES);
+
+        assertNotNull(restarted.get("a", PART_SIZE, PART_SIZE, Bitmap.Config.ARGB_8888, bitmapPool));
+        restarted.awaitWrites();
+    }
+
+    @Test
+    public void smallerSizeOfOtherViewDoesNotTrim() throws InterruptedException {
+        diskCache.put("a", createBitmap());
+        diskCache.put("b", createBitmap());
+        diskCache.awaitWrites();
+
+        diskCache.ensureMaxSize(PART_BYTES);
+
+        assertEquals(10 * PART_BYTES, diskCache.getMaxSize());
+        assertEquals(2 * PART_BYTES, diskCache.getSize());
+        diskCache.ensureMaxSize(20 * PART_BYTES);
+        assertEquals(20 * PART_BYTES, diskCache.getMaxSize());
+    }
+
+    @Test
+    public void writesRequiredPartWhenWriterIsBusy() throws InterruptedException {
+        diskCache.setMaxSize(20 * PART_BYTES);
+        // other parts may be skipped while the writer is busy
+        for (int i = 0; i < 10; i++) {
+            diskCache.put("other" + i, createBitmap());
+        }
+        diskCache.put("required", createBitmap(), true);
+        diskCache.awaitWrites();
+
+        assertNotNull(get("required"));
+    }
+
+    @Test
+    public void writesNothingWhenDisabled() throws InterruptedException {
+        diskCache.setMaxSize(0);
+        diskCache.put("a", createBitmap());
+        diskCache.awaitWrites();
+
+        assertEquals(0, diskCache.getSize());
+        assertNull(get("a"));
+    }
+
+    @Test
+    public void reopenedDocumentReadsPartsFromDisk() throws InterruptedException {
+        PDFViewHarness harness = new PDFViewHarness();
+        try {
+            byte[] document = PDFViewHarness.newDocument();
+            CountingRenderer renderer = new CountingRenderer(10, 600, 800);
+            // without preloading, only the first screen and thumbnails are rendered
+            harness.configure(document, renderer).diskCacheSize(64 * 1024 * 1024).preloadCount(0).load();
+            harness.runUntilIdle();
+            DiskCache shared = harness.view.diskCache;
+            shared.awaitWrites();
+            int renderCount = renderer.getRenderCount();
+            int hitCount = shared.getHitCount();
+
+            harness.configure(document, renderer).diskCacheSize(64 * 1024 * 1024).preloadCount(0).load();
+            harness.runUntilIdle();
+
+            // the first screen and thumbnails come from disk, nothing is rendered again
+            assertEquals(renderCount, renderer.getRenderCount());
+            assertTrue(shared.getHitCount() > hitCount);
+        } finally {
+            harness.close();
+        }
+    }
+
+    private Bitmap get(String key) {
+        return diskCache.get(key, PART_SIZE, PART_SIZE, Bitmap.Config.ARGB_8888, bitmapPool);
+    }
+
+    private static Bitmap createBitmap() {
+        return Bitmap.createBitmap(PART_SIZE, PART_SIZE, Bitmap.Config.ARGB_8888);
+    }
+}
@@ -0,0 +1,96 @@
+/**
+ * Copyright 2017 Bartosz Schiller
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.barteksc.pdfviewer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Time from {@link PDFView.Configurator#load()} until the view knows the size of the first page,
+ * for a document opened again and for one taken from {@link DocumentPool}
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE)
+public class DocumentPoolBenchmark {
+
+    /**
+     * Time of opening a document in milliseconds, it's spent only when the document isn't pooled
+     */
+    private static final long OPEN_DELAY = 20;
+
+    /**
+     * Time of reading the size of a page in milliseconds, the first page is measured in both cases
+     */
+    private static final long MEASURE_DELAY = 1;
+
+    private PDFViewHarness harness;
+
+    private CountingRenderer renderer;
+
+    @Before
+    public void setUp() {
+        harness = new PDFViewHarness();
+        renderer = new CountingRenderer(100, 600, 800);
+        renderer.setOpenDelay(OPEN_DELAY);
+        renderer.setMeasureDelay(MEASURE_DELAY);
+    }
+
+    @After
+    public void tearDown() {
+        harness.close();
+    }
+
+    @Test
+    public void openCold() {
+        BenchmarkRunner.run("Open document, not pooled", new BenchmarkRunner.Operation() {
+            @Override
+            public int run(int iteration) {
+                // a document no view opened before
+                return open(PDFViewHarness.newDocument());
+            }
+        });
+    }
+
+    @Test
+    public void openPooled() {
+        final byte[] document = PDFViewHarness.newDocument();
+        BenchmarkRunner.run("Open document, pooled", new BenchmarkRunner.Operation() {
+            @Override
+            public int run(int iteration) {
+                return open(document);
+            }
+        });
+        assertEquals(1, renderer.getOpenedDocuments());
+    }
+
+    /**
+     * Load the document until the view is sized and release it to the pool
+     */
+    private int open(byte[] document) {
+        harness.configure(document, renderer).load();
+        harness.runUiTasks();
+        int pageCount = harness.view.getPageCount();
+        harness.view.recycle();
+        harness.runUntilIdle();
+        return pageCount;
+    }
+}
@@ -0,0 +1,176 @@
+/**
+ * Copyright 2017 Bartosz Schiller
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.barteksc.pdfviewer;
+
+import android.os.Looper;
+
+import com.github.barteksc.pdfviewer.renderer.DocumentHandle;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+import org.robolectric.util.Scheduler;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE)
+public class DocumentPoolTest {
+
+    private static final long IDLE_TIMEOUT = 1000;
+
+    private DocumentPool pool;
+
+    private CountingRenderer renderer;
+
+    @Before
+    public void setUp() {
+        ShadowLooper.pauseMainLooper();
+        pool = new DocumentPool(Looper.getMainLooper());
+        pool.setIdleTimeout(IDLE_TIMEOUT);
+        renderer = new CountingRenderer(1, 100, 100);
+    }
+
+    @Test
+    public void sharesOpenedDocument() throws Exception {
+        DocumentHandle shared = pool.share("a", open());
+
+        assertSame(shared, pool.acquire("a"));
+        assertNull(pool.acquire("b"));
+    }
+
+    @Test
+    public void closesDuplicateOfSharedDocument() throws Exception {
+        DocumentHandle shared = pool.share("a", open());
+
+        // another view opened the same document in the meantime
+        assertSame(shared, pool.share("a", open()));
+        assertEquals(1, renderer.getClosedDocuments());
+    }
+
+    @Test
+    public void closesReleasedDocumentAfterTimeout() throws Exception {
+        DocumentHandle shared = pool.share("a", open());
+        shared.close();
+
+        advance(IDLE_TIMEOUT - 1);
+        assertEquals(0, renderer.getClosedDocuments());
+
+        advance(1);
+        assertEquals(1, renderer.getClosedDocuments());
+        assertNull(pool.acquire("a"));
+    }
+
+    @Test
+    public void keepsDocumentWithReferences() throws Exception {
+        DocumentHandle shared = pool.share("a", open());
+        pool.acquire("a");
+        shared.close();
+
+        advance(IDLE_TIMEOUT * 2);
+        assertEquals(0, renderer.getClosedDocuments());
+
+        shared.close();
+        advance(IDLE_TIMEOUT);
+        assertEquals(1, renderer.getClosedDocuments());
+    }
+
+    @Test
+    public void reacquiredDocumentStaysOpen() throws Exception {
+        DocumentHandle shared = pool.share("a", open());
+        shared.close();
+        advance(IDLE_TIMEOUT / 2);
+
+        assertSame(shared, pool.acquire("a"));
+        advance(IDLE_TIMEOUT * 2);
+        assertEquals(0, renderer.getClosedDocuments());
+
+        // timeout starts again from the last release
+        shared.close();
+        advance(IDLE_TIMEOUT - 1);
+        assertEquals(0, renderer.getClosedDocuments());
+        advance(1);
+        assertEquals(1, renderer.getClosedDocuments());
+    }
+
+    @Test
+    public void closesLeastRecentlyReleasedAboveMaxIdleCount() throws Exception {
+        pool.setMaxIdleCount(1);
+        DocumentHandle a = pool.share("a", open());
+        DocumentHandle b = pool.share("b", open());
+
+        a.close();
+        b.close();
+        advance(0);
+
+        assertEquals(1, renderer.getClosedDocuments());
+        assertNull(pool.acquire("a"));
+        assertNotNull(pool.acquire("b"));
+    }
+
+    @Test
+    public void clearClosesIdleDocuments() throws Exception {
+        DocumentHandle a = pool.share("a", open());
+        pool.share("b", open());
+        a.close();
+
+        pool.clear();
+        advance(0);
+
+        assertEquals(1, renderer.getClosedDocuments());
+        assertNull(pool.acquire("a"));
+        assertNotNull(pool.acquire("b"));
+    }
+
+    @Test
+    public void reloadedViewReusesDocument() {
+        PDFViewHarness harness = new PDFViewHarness();
+        try {
+            byte[] document = PDFViewHarness.newDocument();
+            CountingRenderer renderer = new CountingRenderer(10, 600, 800);
+            harness.load(document, renderer);
+            harness.view.recycle();
+            harness.runUntilIdle();
+
+            harness.load(document, renderer);
+
+            assertEquals(1, renderer.getOpenedDocuments());
+            assertEquals(0, renderer.getClosedDocuments());
+            assertEquals(10, harness.view.getPageCount());
+        } finally {
+            harness.close();
+        }
+    }
+
+    private DocumentHandle open() throws Exception {
+        return renderer.openDocument(null, null, null);
+    }
+
+    /**
+     * Move the clock forward, running closes posted until then
+     */
+    private static void advance(long time) {
+        Scheduler scheduler = Robolectric.getForegroundThreadScheduler();
+        scheduler.advanceTo(scheduler.getCurrentTime() + time);
+    }
+}
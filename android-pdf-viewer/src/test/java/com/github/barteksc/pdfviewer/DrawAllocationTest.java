@@ -0,0 +1,129 @@
+/**
+ * Copyright 2017 Bartosz Schiller
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.barteksc.pdfviewer;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.DrawFilter;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.RectF;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.lang.management.ManagementFactory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE)
+public class DrawAllocationTest {
+
+    private static final int WARM_UP_FRAMES = 200;
+
+    private static final int FRAMES = 2000;
+
+    private PDFViewHarness harness;
+
+    @Before
+    public void setUp() {
+        harness = new PDFViewHarness();
+    }
+
+    @After
+    public void tearDown() {
+        harness.close();
+    }
+
+    @Test
+    public void drawsFirstPageWithoutAllocating() {
+        harness.load(PDFViewHarness.newDocument(), new CountingRenderer(10, 600, 800));
+
+        assertNoAllocations();
+    }
+
+    @Test
+    public void drawsPagesBoundaryWithoutAllocating() {
+        harness.load(PDFViewHarness.newDocument(), new CountingRenderer(10, 600, 800));
+        // two pages and the spacing between them are visible
+        harness.view.moveRelativeTo(0, -harness.view.getOptimalPageHeight() * 3.5f);
+        harness.view.loadPages();
+        harness.runUntilIdle();
+
+        assertNoAllocations();
+    }
+
+    private void assertNoAllocations() {
+        PDFView view = harness.view;
+        CountingCanvas canvas = new CountingCanvas();
+        for (int i = 0; i < WARM_UP_FRAMES; i++) {
+            view.onDraw(canvas);
+        }
+        assertTrue(canvas.drawnBitmaps > 0);
+
+        long allocatedBefore = getAllocatedBytes();
+        for (int i = 0; i < FRAMES; i++) {
+            view.onDraw(canvas);
+        }
+        long allocated = getAllocatedBytes() - allocatedBefore;
+
+        // reading the counter allocates a few bytes, less than one byte per frame in total
+        assertEquals("Allocated " + allocated + " bytes in " + FRAMES + " frames", 0, allocated / FRAMES);
+    }
+
+    /**
+     * @return bytes allocated by the current thread so far
+     */
+    private static long getAllocatedBytes() {
+        com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        return threadBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    /**
+     * Canvas which only counts drawn bitmaps, so the test measures allocations of the view
+     */
+    private static class CountingCanvas extends Canvas {
+
+        int drawnBitmaps = 0;
+
+        @Override
+        public void drawBitmap(Bitmap bitmap, Rect src, RectF dst, Paint paint) {
+            drawnBitmaps++;
+        }
+
+        @Override
+        public void drawColor(int color) {
+        }
+
+        @Override
+        public void drawRect(RectF rect, Paint paint) {
+        }
+
+        @Override
+        public void translate(float dx, float dy) {
+        }
+
+        @Override
+        public void setDrawFilter(DrawFilter filter) {
+        }
+    }
+}
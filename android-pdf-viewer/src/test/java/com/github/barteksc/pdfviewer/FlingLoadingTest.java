@@ -0,0 +1,110 @@
+/**
+ * Copyright 2017 Bartosz Schiller
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.barteksc.pdfviewer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE)
+public class FlingLoadingTest {
+
+    private static final int PAGE_COUNT = 20;
+
+    private static final int FRAMES = 5;
+
+    private PDFViewHarness harness;
+
+    private CountingRenderer renderer;
+
+    @Before
+    public void setUp() {
+        harness = new PDFViewHarness();
+        renderer = new CountingRenderer(PAGE_COUNT, 600, 800);
+        // nothing is rendered at the start of the document, where the fling stops
+        harness.configure(PDFViewHarness.newDocument(), renderer).defaultPage(10).load();
+        harness.runUntilIdle();
+    }
+
+    @After
+    public void tearDown() {
+        harness.close();
+    }
+
+    @Test
+    public void rendersThumbnailsOfPassedPagesBeforeDestination() {
+        PDFView view = harness.view;
+        float startY = view.getCurrentYOffset();
+        view.getAnimationManager().startFlingAnimation((int) view.getCurrentXOffset(), (int) startY, 0, 20000,
+                0, 0, (int) -(view.calculateDocLength() - view.getHeight()), 0);
+        float endY = view.getFlingFinalYOffset();
+        assertTrue(endY - startY > 3 * view.getHeight());
+        List<Integer> destinationPages = getVisiblePages(endY);
+
+        // the fling is faster than rendering, so only one part is rendered in every frame
+        for (int frame = 1; frame < FRAMES; frame++) {
+            view.moveTo(view.getCurrentXOffset(), startY + (endY - startY) * frame / FRAMES);
+            view.loadPages();
+            harness.runUiTasks();
+
+            int page = renderNextPart();
+            assertTrue(getVisiblePages(view.getCurrentYOffset()).contains(page));
+            assertFalse(destinationPages.contains(page));
+        }
+
+        // thumbnails of the pages shown now are done, parts of the destination follow
+        harness.runUntilIdle();
+        assertTrue(renderer.getRenderedPages().containsAll(destinationPages));
+    }
+
+    /**
+     * @return pages visible when the view is at given offset
+     */
+    private List<Integer> getVisiblePages(float yOffset) {
+        PDFView view = harness.view;
+        PageLayout pageLayout = view.getPageLayout();
+        int first = pageLayout.getPageAtOffset(view.toRealScale(-yOffset));
+        int last = pageLayout.getPageAtOffset(view.toRealScale(-yOffset + view.getHeight()));
+        List<Integer> pages = new ArrayList<>();
+        for (int page = first; page <= last; page++) {
+            pages.add(page);
+        }
+        return pages;
+    }
+
+    /**
+     * Run tasks of the rendering looper one by one until a part is rendered
+     *
+     * @return page of the part
+     */
+    private int renderNextPart() {
+        int renderCount = renderer.getRenderCount();
+        while (renderer.getRenderCount() == renderCount) {
+            assertTrue("Nothing to render", harness.runRenderingTask());
+        }
+        return renderer.getRenderedPages().get(renderCount);
+    }
+}
@@ -0,0 +1,141 @@
+/**
+ * Copyright 2017 Bartosz Schiller
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.barteksc.pdfviewer;
+
+import android.graphics.PointF;
+import android.view.View;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE)
+public class FrameSchedulerTest {
+
+    private int runCount;
+
+    private FrameScheduler scheduler;
+
+    @Before
+    public void setUp() {
+        ShadowLooper.pauseMainLooper();
+        runCount = 0;
+        scheduler = new FrameScheduler(new View(RuntimeEnvironment.application), new Runnable() {
+            @Override
+            public void run() {
+                runCount++;
+            }
+        });
+    }
+
+    @After
+    public void tearDown() {
+        scheduler.cancel();
+    }
+
+    @Test
+    public void runsOncePerFrame() {
+        scheduler.schedule();
+        scheduler.schedule();
+        scheduler.schedule();
+        assertTrue(scheduler.isScheduled());
+        assertEquals(0, runCount);
+
+        nextFrame();
+        assertEquals(1, runCount);
+        assertFalse(scheduler.isScheduled());
+
+        nextFrame();
+        assertEquals(1, runCount);
+    }
+
+    @Test
+    public void runsAgainWhenScheduledInNextFrame() {
+        scheduler.schedule();
+        nextFrame();
+        scheduler.schedule();
+        nextFrame();
+
+        assertEquals(2, runCount);
+    }
+
+    @Test
+    public void cancelledTaskDoesNotRun() {
+        scheduler.schedule();
+        scheduler.cancel();
+        nextFrame();
+
+        assertEquals(0, runCount);
+        assertFalse(scheduler.isScheduled());
+
+        scheduler.schedule();
+        nextFrame();
+        assertEquals(1, runCount);
+    }
+
+    @Test
+    public void gestureLoadsPagesOncePerFrame() {
+        PDFViewHarness harness = new PDFViewHarness();
+        try {
+            harness.load(PDFViewHarness.newDocument(), new CountingRenderer(10, 600, 800));
+            PDFView view = harness.view;
+            int passCount = view.getLoadPagesPassCount();
+
+            // drag, several touch events per frame
+            for (int frame = 0; frame < 10; frame++) {
+                for (int event = 0; event < 3; event++) {
+                    view.moveRelativeTo(0, -5);
+                    view.loadPageByOffset();
+                }
+                harness.runUiTasks();
+            }
+            assertEquals(passCount + 10, view.getLoadPagesPassCount());
+
+            // pinch, zoom and scroll end in the same frame
+            PointF center = new PointF(view.getWidth() / 2f, view.getHeight() / 2f);
+            for (int frame = 0; frame < 5; frame++) {
+                view.zoomCenteredRelativeTo(1.05f, center);
+                view.loadPages();
+                view.loadPageByOffset();
+                view.loadPages();
+                harness.runUiTasks();
+            }
+            assertEquals(passCount + 15, view.getLoadPagesPassCount());
+
+            // frames without changes load nothing
+            harness.runUiTasks();
+            harness.runUiTasks();
+            assertEquals(passCount + 15, view.getLoadPagesPassCount());
+        } finally {
+            harness.close();
+        }
+    }
+
+    private static void nextFrame() {
+        Robolectric.getForegroundThreadScheduler().advanceToLastPostedRunnable();
+    }
+}
@@ -0,0 +1,161 @@
+/**
+ * Copyright 2017 Bartosz Schiller
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.barteksc.pdfviewer;
+
+import android.app.Activity;
+import android.os.Looper;
+import android.view.View.MeasureSpec;
+import android.view.ViewGroup;
+
+import com.github.barteksc.pdfviewer.renderer.PageRenderer;
+
+import org.robolectric.Robolectric;
+import org.robolectric.Shadows;
+import org.robolectric.shadows.ShadowLooper;
+import org.robolectric.util.Scheduler;
+
+import java.util.concurrent.Executor;
+
+/**
+ * PDFView attached to an activity, with the UI and the rendering looper paused,
+ * so tests run their tasks on the test thread in a known order
+ */
+class PDFViewHarness {
+
+    static final long CACHE_SIZE = 64 * 1024 * 1024;
+
+    /**
+     * Size of the view when the activity doesn't lay it out
+     */
+    private static final int WIDTH = 480, HEIGHT = 800;
+
+    private static final int MAX_ROUNDS = 1000;
+
+    private static final Executor DIRECT_EXECUTOR = new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            command.run();
+        }
+    };
+
+    final PDFView view;
+
+    final RenderingEngine engine;
+
+    private final Scheduler uiScheduler;
+
+    private final Scheduler renderingScheduler;
+
+    PDFViewHarness() {
+        Activity activity = Robolectric.setupActivity(Activity.class);
+        view = new PDFView(activity, null);
+        activity.setContentView(view, new ViewGroup.LayoutParams(
+                ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.MATCH_PARENT));
+        ShadowLooper.idleMainLooper();
+        if (view.getWidth() == 0 || view.getHeight() == 0) {
+            view.measure(MeasureSpec.makeMeasureSpec(WIDTH, MeasureSpec.EXACTLY),
+                    MeasureSpec.makeMeasureSpec(HEIGHT, MeasureSpec.EXACTLY));
+            view.layout(0, 0, WIDTH, HEIGHT);
+        }
+
+        ShadowLooper.pauseMainLooper();
+        uiScheduler = Robolectric.getForegroundThreadScheduler();
+
+        engine = new RenderingEngine(4 * CACHE_SIZE);
+        Looper renderingLooper = engine.getLooper();
+        Shadows.shadowOf(renderingLooper).pause();
+        renderingScheduler = Shadows.shadowOf(renderingLooper).getScheduler();
+    }
+
+    /**
+     * @return bytes of a document no other test opened, so it isn't taken from {@link DocumentPool}
+     */
+    static byte[] newDocument() {
+        return ("document " + System.nanoTime()).getBytes();
+    }
+
+    /**
+     * Configure loading on the test thread, rendering on the paused looper and a cache big enough for all parts
+     */
+    PDFView.Configurator configure(byte[] document, PageRenderer renderer) {
+        return view.fromBytes(document)
+                .renderer(renderer)
+                .renderingEngine(engine)
+                .loadExecutor(DIRECT_EXECUTOR)
+                .cacheSize(CACHE_SIZE);
+    }
+
+    /**
+     * Load the document and run until all its parts are rendered
+     */
+    void load(byte[] document, PageRenderer renderer) {
+        configure(document, renderer).load();
+        runUntilIdle();
+    }
+
+    /**
+     * Run tasks of the UI and the rendering looper until none is left, tasks posted by others included
+     */
+    void runUntilIdle() {
+        for (int i = 0; i < MAX_ROUNDS; i++) {
+            if (uiScheduler.size() == 0 && renderingScheduler.size() == 0) {
+                return;
+            }
+            uiScheduler.advanceToLastPostedRunnable();
+            renderingScheduler.advanceToLastPostedRunnable();
+        }
+        throw new AssertionError("Tasks still posted after " + MAX_ROUNDS + " rounds");
+    }
+
+    /**
+     * Run tasks of the UI looper only, rendering tasks stay queued
+     */
+    void runUiTasks() {
+        runTasks(uiScheduler);
+    }
+
+    /**
+     * Run tasks of the rendering looper only, rendered parts wait for the UI looper
+     */
+    void runRenderingTasks() {
+        runTasks(renderingScheduler);
+    }
+
+    /**
+     * Run the next task of the rendering looper
+     *
+     * @return false if no task was posted
+     */
+    boolean runRenderingTask() {
+        return renderingScheduler.runOneTask();
+    }
+
+    private static void runTasks(Scheduler scheduler) {
+        for (int i = 0; i < MAX_ROUNDS; i++) {
+            if (scheduler.size() == 0) {
+                return;
+            }
+            scheduler.advanceToLastPostedRunnable();
+        }
+        throw new AssertionError("Tasks still posted after " + MAX_ROUNDS + " rounds");
+    }
+
+    void close() {
+        view.recycle();
+        runUntilIdle();
+        engine.getLooper().quit();
+    }
+}
@@ -0,0 +1,106 @@
+/**
+ * Copyright 2017 Bartosz Schiller
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.barteksc.pdfviewer;
+
+import com.github.barteksc.pdfviewer.util.ArrayUtils;
+import com.github.barteksc.pdfviewer.util.MathUtils;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+/**
+ * Layout and math used on every frame, they don't need Android classes
+ */
+public class PageLayoutBenchmark {
+
+    @Test
+    public void pageAtOffset() {
+        for (final int pageCount : new int[]{100, 10000}) {
+            final PageLayout layout = createLayout(pageCount);
+            final float[] offsets = randomOffsets(layout.getDocLength());
+            BenchmarkRunner.run("PageLayout.getPageAtOffset, " + pageCount + " pages", new BenchmarkRunner.Operation() {
+                @Override
+                public int run(int iteration) {
+                    return layout.getPageAtOffset(offsets[iteration & (offsets.length - 1)]);
+                }
+            });
+        }
+    }
+
+    @Test
+    public void calculateLayout() {
+        final PageLayout layout = createLayout(10000);
+        BenchmarkRunner.run("PageLayout.calculate, 10000 pages", new BenchmarkRunner.Operation() {
+            @Override
+            public int run(int iteration) {
+                layout.calculate(1080 + (iteration & 1), 1920, 10, true);
+                return (int) layout.getDocLength();
+            }
+        });
+    }
+
+    @Test
+    public void floorAndCeil() {
+        final float[] values = randomOffsets(10000);
+        BenchmarkRunner.run("MathUtils.floor + MathUtils.ceil", new BenchmarkRunner.Operation() {
+            @Override
+            public int run(int iteration) {
+                float value = values[iteration & (values.length - 1)];
+                return MathUtils.floor(value) + MathUtils.ceil(value);
+            }
+        });
+    }
+
+    @Test
+    public void deleteDuplicatedPages() {
+        final int[] pages = new int[1000];
+        for (int i = 0; i < pages.length; i++) {
+            pages[i] = i / 3;
+        }
+        BenchmarkRunner.run("ArrayUtils.deleteDuplicatedPages, 1000 pages", new BenchmarkRunner.Operation() {
+            @Override
+            public int run(int iteration) {
+                return ArrayUtils.deleteDuplicatedPages(pages).length;
+            }
+        });
+    }
+
+    /**
+     * Layout of pages of random sizes, the same in every run
+     */
+    private static PageLayout createLayout(int pageCount) {
+        Random random = new Random(pageCount);
+        PageLayout layout = new PageLayout(pageCount, null, 600, 800);
+        for (int page = 0; page < pageCount; page++) {
+            layout.setPageSize(page, 400 + random.nextInt(400), 600 + random.nextInt(400));
+        }
+        layout.calculate(1080, 1920, 10, true);
+        return layout;
+    }
+
+    /**
+     * @return 4096 offsets up to the given length, the same in every run
+     */
+    private static float[] randomOffsets(float length) {
+        Random random = new Random(42);
+        float[] offsets = new float[4096];
+        for (int i = 0; i < offsets.length; i++) {
+            offsets[i] = random.nextFloat() * length;
+        }
+        return offsets;
+    }
+}
@@ -0,0 +1,133 @@
+/**
+ * Copyright 2017 Bartosz Schiller
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.barteksc.pdfviewer;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class PageLayoutTest {
+
+    private static final float DELTA = 0.001f;
+
+    @Test
+    public void fitsPagesToViewWidth() {
+        PageLayout layout = new PageLayout(3, null, 100, 200);
+        layout.calculate(50, 1000, 10, true);
+
+        assertEquals(50, layout.getPageWidth(0), DELTA);
+        assertEquals(100, layout.getPageHeight(0), DELTA);
+        assertEquals(0, layout.getPageOffset(0), DELTA);
+        assertEquals(110, layout.getPageOffset(1), DELTA);
+        assertEquals(220, layout.getPageOffset(2), DELTA);
+        assertEquals(320, layout.getDocLength(), DELTA);
+    }
+
+    @Test
+    public void fitsPagesToViewHeightWhenHorizontal() {
+        PageLayout layout = new PageLayout(2, null, 200, 100);
+        layout.calculate(1000, 50, 0, false);
+
+        assertEquals(100, layout.getPageWidth(1), DELTA);
+        assertEquals(50, layout.getPageHeight(1), DELTA);
+        assertEquals(100, layout.getPageOffset(1), DELTA);
+        assertEquals(100, layout.getPageLength(1), DELTA);
+    }
+
+    @Test
+    public void findsPageAtOffset() {
+        PageLayout layout = new PageLayout(3, null, 100, 200);
+        layout.calculate(50, 1000, 10, true);
+
+        assertEquals(0, layout.getPageAtOffset(-5));
+        assertEquals(0, layout.getPageAtOffset(0));
+        // spacing after a page belongs to that page
+        assertEquals(0, layout.getPageAtOffset(109));
+        assertEquals(1, layout.getPageAtOffset(110));
+        assertEquals(2, layout.getPageAtOffset(320));
+        assertEquals(2, layout.getPageAtOffset(10000));
+    }
+
+    @Test
+    public void findsPageAtOffsetLikeLinearSearch() {
+        Random random = new Random(42);
+        int pageCount = 500;
+        PageLayout layout = new PageLayout(pageCount, null, 100, 100);
+        for (int page = 0; page < pageCount; page++) {
+            layout.setPageSize(page, 50 + random.nextInt(200), 50 + random.nextInt(200));
+        }
+        layout.calculate(100, 1000, 5, true);
+
+        for (int i = 0; i < 2000; i++) {
+            float offset = random.nextFloat() * (layout.getDocLength() + 100) - 50;
+            int expected = 0;
+            for (int page = 1; page < pageCount; page++) {
+                if (layout.getPageOffset(page) <= offset) {
+                    expected = page;
+                }
+            }
+            assertEquals("offset " + offset, expected, layout.getPageAtOffset(offset));
+        }
+    }
+
+    @Test
+    public void measuredPageMovesFollowingPages() {
+        PageLayout layout = new PageLayout(3, null, 100, 200);
+        layout.calculate(50, 1000, 0, true);
+        assertFalse(layout.isPageSizeKnown(1));
+
+        assertTrue(layout.setPageSize(1, 100, 100));
+        assertFalse(layout.setPageSize(1, 100, 100));
+        layout.calculate();
+
+        assertTrue(layout.isPageSizeKnown(1));
+        assertEquals(50, layout.getPageHeight(1), DELTA);
+        assertEquals(150, layout.getPageOffset(2), DELTA);
+        assertEquals(1, layout.getPageAtOffset(149));
+        assertEquals(2, layout.getPageAtOffset(150));
+    }
+
+    @Test
+    public void mapsUserPagesToDocumentPages() {
+        PageLayout layout = new PageLayout(3, new int[]{2, 0, 2, 7}, 100, 200);
+        layout.setPageSize(2, 100, 100);
+        layout.calculate(50, 1000, 0, true);
+
+        assertEquals(4, layout.getPageCount());
+        assertEquals(2, layout.documentPage(0));
+        assertEquals(-1, layout.documentPage(3));
+        assertEquals(-1, layout.documentPage(4));
+        assertEquals(50, layout.getPageHeight(0), DELTA);
+        assertEquals(100, layout.getPageHeight(1), DELTA);
+        assertEquals(50, layout.getPageHeight(2), DELTA);
+        // pages not in the document get the default size
+        assertEquals(100, layout.getPageHeight(3), DELTA);
+        assertEquals(200, layout.getPageOffset(3), DELTA);
+    }
+
+    @Test
+    public void handlesEmptyDocument() {
+        PageLayout layout = new PageLayout(0, null, 100, 200);
+        layout.calculate(50, 1000, 10, true);
+
+        assertEquals(0, layout.getDocLength(), DELTA);
+        assertEquals(0, layout.getPageAtOffset(100));
+    }
+}
@@ -0,0 +1,103 @@
+/**
+ * Copyright 2017 Bartosz Schiller
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.barteksc.pdfviewer;
+
+import android.graphics.RectF;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+/**
+ * Passes loading parts around the view and updates of the render queue, on a view showing
+ * a document of {@link com.github.barteksc.pdfviewer.renderer.SyntheticRenderer} pages
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE)
+public class PagesLoaderBenchmark {
+
+    private static final int PAGE_COUNT = 1000;
+
+    private PDFViewHarness harness;
+
+    @Before
+    public void setUp() {
+        harness = new PDFViewHarness();
+        harness.load(PDFViewHarness.newDocument(), new CountingRenderer(PAGE_COUNT, 600, 800));
+    }
+
+    @After
+    public void tearDown() {
+        harness.close();
+    }
+
+    @Test
+    public void loadPagesWhenStill() {
+        final PDFView view = harness.view;
+        BenchmarkRunner.run("PDFView.loadPages pass, parts cached", new BenchmarkRunner.Operation() {
+            @Override
+            public int run(int iteration) {
+                view.loadPages();
+                harness.runUiTasks();
+                return view.getLoadPagesPassCount();
+            }
+        });
+    }
+
+    @Test
+    public void loadPagesWhenScrolling() {
+        final PDFView view = harness.view;
+        final float range = view.calculateDocLength() - view.getHeight();
+        BenchmarkRunner.run("PDFView.loadPages pass, scrolling", new BenchmarkRunner.Operation() {
+            @Override
+            public int run(int iteration) {
+                // parts are not rendered while scrolling, so the queue changes on every pass
+                view.moveTo(0, -(iteration * 97f % range));
+                view.loadPages();
+                harness.runUiTasks();
+                return view.getLoadPagesPassCount();
+            }
+        });
+    }
+
+    @Test
+    public void updateRenderQueue() {
+        for (final int taskCount : new int[]{100, 500}) {
+            final RenderingHandler handler = harness.view.renderingHandler;
+            final RectF[] bounds = new RectF[16];
+            for (int i = 0; i < bounds.length; i++) {
+                bounds[i] = new RectF((i % 4) / 4f, (i / 4) / 4f, (i % 4 + 1) / 4f, (i / 4 + 1) / 4f);
+            }
+            BenchmarkRunner.run("RenderingHandler queue update, " + taskCount + " tasks", new BenchmarkRunner.Operation() {
+                @Override
+                public int run(int iteration) {
+                    // the requested pages move by one on every update, so some tasks are new and some cancelled
+                    handler.startUpdate();
+                    for (int i = 0; i < taskCount; i++) {
+                        int page = (iteration + i / bounds.length) % PAGE_COUNT;
+                        handler.addRenderingTask(page, page, 256, 256, bounds[i % bounds.length], false, i,
+                                false, false);
+                    }
+                    handler.finishUpdate();
+                    return handler.hasVisibleTasks() ? 1 : 0;
+                }
+            });
+        }
+    }
+}
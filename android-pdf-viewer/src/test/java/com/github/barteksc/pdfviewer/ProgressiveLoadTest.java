@@ -0,0 +1,159 @@
+/**
+ * Copyright 2017 Bartosz Schiller
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.barteksc.pdfviewer;
+
+import com.github.barteksc.pdfviewer.listener.OnLoadCompleteListener;
+import com.github.barteksc.pdfviewer.listener.OnLoadProgressListener;
+import com.github.barteksc.pdfviewer.listener.OnRenderListener;
+import com.github.barteksc.pdfviewer.model.Bookmark;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE)
+public class ProgressiveLoadTest {
+
+    private PDFViewHarness harness;
+
+    private CountingRenderer renderer;
+
+    /**
+     * Loading phases in the order they were reported
+     */
+    private final List<String> phases = new ArrayList<>();
+
+    private int measuredPagesOnLoadComplete;
+
+    private int tableOfContentsReadsOnLoadComplete;
+
+    private long loadCompleteTime;
+
+    private long allPagesMeasuredTime;
+
+    @Before
+    public void setUp() {
+        harness = new PDFViewHarness();
+    }
+
+    @After
+    public void tearDown() {
+        harness.close();
+    }
+
+    @Test
+    public void reportsPhasesInOrder() {
+        load(new CountingRenderer(200, 600, 800), 120);
+
+        assertEquals(Arrays.asList("opened", "pageCount 200", "firstPageSized 120", "loadComplete 200",
+                "rendered", "allPagesMeasured", "tableOfContents"), phases);
+    }
+
+    @Test
+    public void sizesOnlyDefaultPageBeforeLoadComplete() {
+        load(new CountingRenderer(200, 600, 800), 120);
+
+        assertEquals(1, measuredPagesOnLoadComplete);
+        assertEquals(0, tableOfContentsReadsOnLoadComplete);
+        assertEquals(1, renderer.getTableOfContentsReads());
+        assertEquals(120, harness.view.getCurrentPage());
+
+        // the default page is read first, then the batch around it
+        List<Integer> measuredPages = renderer.getMeasuredPages();
+        assertEquals(Integer.valueOf(120), measuredPages.get(0));
+        for (int i = 0; i < 20; i++) {
+            assertEquals(Integer.valueOf(120 + i), measuredPages.get(1 + i));
+        }
+        assertEquals(201, measuredPages.size());
+    }
+
+    @Test
+    public void showsLargeDocumentBeforeMeasuringAllPages() {
+        CountingRenderer renderer = new CountingRenderer(2000, 600, 800);
+        renderer.setMeasureDelay(1);
+        long startTime = System.nanoTime();
+        load(renderer, 1000);
+
+        // pages are measured for at least 2 seconds, the default page is shown after one of them
+        long loadTime = loadCompleteTime - startTime;
+        long measureTime = allPagesMeasuredTime - startTime;
+        assertTrue("Loaded in " + loadTime + " ns, measured in " + measureTime + " ns", loadTime < measureTime / 4);
+        assertEquals(1, measuredPagesOnLoadComplete);
+    }
+
+    private void load(CountingRenderer renderer, int defaultPage) {
+        this.renderer = renderer;
+        harness.configure(PDFViewHarness.newDocument(), renderer)
+                .defaultPage(defaultPage)
+                .onLoad(new OnLoadCompleteListener() {
+                    @Override
+                    public void loadComplete(int nbPages) {
+                        phases.add("loadComplete " + nbPages);
+                        loadCompleteTime = System.nanoTime();
+                        measuredPagesOnLoadComplete = ProgressiveLoadTest.this.renderer.getMeasuredPages().size();
+                        tableOfContentsReadsOnLoadComplete = ProgressiveLoadTest.this.renderer.getTableOfContentsReads();
+                    }
+                })
+                .onRender(new OnRenderListener() {
+                    @Override
+                    public void onInitiallyRendered(int nbPages, float pageWidth, float pageHeight) {
+                        phases.add("rendered");
+                    }
+                })
+                .onLoadProgress(new OnLoadProgressListener() {
+                    @Override
+                    public void onDocumentOpened() {
+                        phases.add("opened");
+                    }
+
+                    @Override
+                    public void onPageCountKnown(int pageCount) {
+                        phases.add("pageCount " + pageCount);
+                    }
+
+                    @Override
+                    public void onFirstPageSized(int page, int width, int height) {
+                        phases.add("firstPageSized " + page);
+                    }
+
+                    @Override
+                    public void onAllPagesMeasured() {
+                        phases.add("allPagesMeasured");
+                        allPagesMeasuredTime = System.nanoTime();
+                    }
+
+                    @Override
+                    public void onTableOfContentsLoaded(List<Bookmark> tableOfContents) {
+                        phases.add("tableOfContents");
+                    }
+                })
+                .load();
+        // the first frame requests visible parts before the rendering thread starts measuring pages
+        harness.runUiTasks();
+        harness.runUntilIdle();
+    }
+}
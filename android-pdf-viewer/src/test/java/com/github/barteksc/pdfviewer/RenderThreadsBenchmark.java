@@ -0,0 +1,133 @@
+/**
+ * Copyright 2017 Bartosz Schiller
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.barteksc.pdfviewer;
+
+import android.graphics.RectF;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.Locale;
+
+/**
+ * Rendered parts per second with different numbers of rendering threads, for a renderer which renders
+ * in parallel and for one holding a global lock like Pdfium
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE)
+public class RenderThreadsBenchmark {
+
+    private static final int[] THREADS = {1, 2, 4};
+
+    /**
+     * Parts queued at once, every operation waits until all of them are rendered
+     */
+    private static final int BATCH = 32;
+
+    private static final float PART_SIZE = 64;
+
+    /**
+     * Time of rendering one part in milliseconds
+     */
+    private static final long RENDER_DELAY = 4;
+
+    private static final long TIMEOUT = 10000;
+
+    @Test
+    public void renderInParallel() {
+        for (int threads : THREADS) {
+            measure(threads, null);
+        }
+    }
+
+    @Test
+    public void renderWithGlobalLock() {
+        Object lock = new Object();
+        for (int threads : THREADS) {
+            measure(threads, lock);
+        }
+    }
+
+    private static void measure(int threads, Object renderLock) {
+        final PDFViewHarness harness = new PDFViewHarness();
+        try {
+            final CountingRenderer renderer = new CountingRenderer(10, 600, 800);
+            harness.configure(PDFViewHarness.newDocument(), renderer).renderThreads(threads).load();
+            awaitLoaded(harness, renderer);
+            renderer.setRenderDelay(RENDER_DELAY);
+            renderer.setRenderLock(renderLock);
+
+            final RenderingHandler handler = harness.view.renderingHandler;
+            final RectF[] bounds = new RectF[BATCH];
+            for (int i = 0; i < BATCH; i++) {
+                bounds[i] = new RectF(i / (float) BATCH, 0, (i + 1) / (float) BATCH, 1f / BATCH);
+            }
+            String name = String.format(Locale.US, "Render %d parts, %d threads, %s", BATCH, threads,
+                    renderLock != null ? "global lock" : "parallel");
+            double time = BenchmarkRunner.run(name, new BenchmarkRunner.Operation() {
+                @Override
+                public int run(int iteration) {
+                    int target = renderer.getRenderCount() + BATCH;
+                    // finished tasks are forgotten, so the same parts are rendered again in every batch
+                    handler.startUpdate();
+                    for (int i = 0; i < BATCH; i++) {
+                        handler.addRenderingTask(0, 0, PART_SIZE, PART_SIZE, bounds[i], false, i, false, false);
+                    }
+                    handler.finishUpdate();
+                    awaitRendered(harness, renderer, target);
+                    harness.runUiTasks();
+                    return renderer.getRenderCount();
+                }
+            });
+            System.out.println(String.format(Locale.US, "%-60s %14.0f parts/s", name, BATCH * 1e9 / time));
+        } finally {
+            harness.close();
+        }
+    }
+
+    /**
+     * Run tasks until workers stop rendering parts of the first screen
+     */
+    private static void awaitLoaded(PDFViewHarness harness, CountingRenderer renderer) {
+        int count;
+        do {
+            count = renderer.getRenderCount();
+            harness.runUntilIdle();
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                throw new AssertionError(e);
+            }
+        } while (count != renderer.getRenderCount());
+        harness.runUntilIdle();
+    }
+
+    /**
+     * Hand tasks over to workers until the renderer finished given number of parts
+     */
+    private static void awaitRendered(PDFViewHarness harness, CountingRenderer renderer, int count) {
+        long deadline = System.currentTimeMillis() + TIMEOUT;
+        while (renderer.getRenderCount() < count) {
+            if (System.currentTimeMillis() > deadline) {
+                throw new AssertionError("Rendered " + renderer.getRenderCount() + " of " + count + " parts");
+            }
+            harness.runRenderingTasks();
+            Thread.yield();
+        }
+    }
+}
@@ -0,0 +1,140 @@
+/**
+ * Copyright 2017 Bartosz Schiller
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.barteksc.pdfviewer;
+
+import android.graphics.PointF;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE)
+public class RenderZoomTest {
+
+    private static final float DELTA = 0.001f;
+
+    private static final float SQRT_2 = (float) Math.sqrt(2);
+
+    private PDFViewHarness harness;
+
+    @Before
+    public void setUp() {
+        harness = new PDFViewHarness();
+    }
+
+    @After
+    public void tearDown() {
+        harness.close();
+    }
+
+    @Test
+    public void keepsRenderZoomForSmallZoomChanges() {
+        PDFView view = harness.view;
+
+        view.zoomTo(1.2f);
+        assertEquals(1f, view.getRenderZoom(), DELTA);
+        view.zoomTo(0.85f);
+        assertEquals(1f, view.getRenderZoom(), DELTA);
+    }
+
+    @Test
+    public void changesRenderZoomWithHysteresis() {
+        PDFView view = harness.view;
+
+        view.zoomTo(1.3f);
+        assertEquals(SQRT_2, view.getRenderZoom(), DELTA);
+        // back below the zoom which changed the level, but parts are scaled less than the threshold
+        view.zoomTo(1.2f);
+        assertEquals(SQRT_2, view.getRenderZoom(), DELTA);
+        view.zoomTo(1.1f);
+        assertEquals(1f, view.getRenderZoom(), DELTA);
+    }
+
+    @Test
+    public void usesConfiguredZoomLevels() {
+        harness.configure(PDFViewHarness.newDocument(), new CountingRenderer(10, 600, 800))
+                .renderZoomLevels(4, 1, 2)
+                .renderScaleThreshold(1.5f)
+                .load();
+        harness.runUntilIdle();
+        PDFView view = harness.view;
+
+        view.zoomTo(1.4f);
+        assertEquals(1f, view.getRenderZoom(), DELTA);
+        view.zoomTo(1.6f);
+        assertEquals(2f, view.getRenderZoom(), DELTA);
+        view.zoomTo(3.5f);
+        assertEquals(4f, view.getRenderZoom(), DELTA);
+    }
+
+    @Test
+    public void pinchBelowThresholdRendersNothing() {
+        CountingRenderer renderer = new CountingRenderer(10, 600, 800);
+        harness.load(PDFViewHarness.newDocument(), renderer);
+        int renderCount = renderer.getRenderCount();
+
+        pinch(1f, 1.2f);
+
+        assertEquals(1f, harness.view.getRenderZoom(), DELTA);
+        assertEquals(renderCount, renderer.getRenderCount());
+    }
+
+    @Test
+    public void pinchBeyondThresholdRendersOnce() {
+        CountingRenderer renderer = new CountingRenderer(10, 600, 800);
+        harness.load(PDFViewHarness.newDocument(), renderer);
+        Set<Integer> pageWidths = new HashSet<>(renderer.getRenderedPageWidths());
+        int renderCount = renderer.getRenderCount();
+
+        pinch(1f, 1.5f);
+
+        // parts are rendered again at one new level, not at every zoom of the gesture
+        List<Integer> widths = renderer.getRenderedPageWidths();
+        Set<Integer> newPageWidths = new HashSet<>(widths.subList(renderCount, widths.size()));
+        newPageWidths.removeAll(pageWidths);
+        assertEquals(SQRT_2, harness.view.getRenderZoom(), DELTA);
+        assertEquals(1, newPageWidths.size());
+        assertFalse(renderer.getRenderCount() == renderCount);
+        assertTrue(Collections.max(newPageWidths) > Collections.max(pageWidths));
+    }
+
+    /**
+     * Zoom around the view center in small steps, rendering after every step
+     */
+    private void pinch(float fromZoom, float toZoom) {
+        PDFView view = harness.view;
+        PointF center = new PointF(view.getWidth() / 2f, view.getHeight() / 2f);
+        int steps = 20;
+        for (int i = 1; i <= steps; i++) {
+            view.zoomCenteredTo(fromZoom + (toZoom - fromZoom) * i / steps, center);
+            view.loadPages();
+            harness.runUntilIdle();
+        }
+    }
+}
@@ -0,0 +1,103 @@
+/**
+ * Copyright 2017 Bartosz Schiller
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.barteksc.pdfviewer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE)
+public class RenderingHandlerTest {
+
+    private PDFViewHarness harness;
+
+    @Before
+    public void setUp() {
+        harness = new PDFViewHarness();
+    }
+
+    @After
+    public void tearDown() {
+        harness.close();
+    }
+
+    @Test
+    public void cachesEveryRenderedPart() {
+        CountingRenderer renderer = new CountingRenderer(10, 600, 800);
+        harness.load(PDFViewHarness.newDocument(), renderer);
+
+        CacheManager cacheManager = harness.view.cacheManager;
+        assertTrue(renderer.getRenderCount() > 0);
+        assertEquals(renderer.getRenderCount(),
+                cacheManager.getPageParts().size() + cacheManager.getThumbnails().size());
+        assertEquals(0, harness.view.getCacheEvictionCount());
+        assertFalse(harness.view.renderingHandler.hasVisibleTasks());
+    }
+
+    @Test
+    public void rendersShownPageFirst() {
+        CountingRenderer renderer = new CountingRenderer(10, 600, 800);
+        harness.configure(PDFViewHarness.newDocument(), renderer)
+                .defaultPage(5)
+                .load();
+        harness.runUntilIdle();
+
+        List<Integer> renderedPages = renderer.getRenderedPages();
+        assertEquals(5, harness.view.getCurrentPage());
+        assertEquals(Integer.valueOf(5), renderedPages.get(0));
+    }
+
+    @Test
+    public void loadingPagesAgainRendersNothing() {
+        CountingRenderer renderer = new CountingRenderer(10, 600, 800);
+        harness.load(PDFViewHarness.newDocument(), renderer);
+        int renderCount = renderer.getRenderCount();
+
+        harness.view.loadPages();
+        harness.runUntilIdle();
+
+        assertEquals(renderCount, renderer.getRenderCount());
+    }
+
+    @Test
+    public void partsRenderedBeforeRecycleAreDropped() {
+        CountingRenderer renderer = new CountingRenderer(10, 600, 800);
+        harness.load(PDFViewHarness.newDocument(), renderer);
+        int renderCount = renderer.getRenderCount();
+
+        harness.view.jumpTo(8);
+        harness.runUiTasks();
+        harness.runRenderingTasks();
+        assertTrue(renderer.getRenderCount() > renderCount);
+
+        // rendered parts are posted to the UI thread, they arrive after the document is recycled
+        harness.view.recycle();
+        harness.runUntilIdle();
+
+        assertTrue(harness.view.cacheManager.getPageParts().isEmpty());
+        assertTrue(harness.view.cacheManager.getThumbnails().isEmpty());
+    }
+}
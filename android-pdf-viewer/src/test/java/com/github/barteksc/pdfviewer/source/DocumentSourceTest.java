@@ -0,0 +1,180 @@
+/**
+ * Copyright 2017 Bartosz Schiller
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.barteksc.pdfviewer.source;
+
+import android.content.Context;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.lang.management.ManagementFactory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE)
+public class DocumentSourceTest {
+
+    /**
+     * Size of the largest documents viewed, they don't fit into the heap of most devices
+     */
+    private static final long LARGE_DOCUMENT_SIZE = 300L * 1024 * 1024;
+
+    /**
+     * Memory the sources may allocate no matter the document size
+     */
+    private static final long MAX_ALLOCATED_BYTES = 4 * 1024 * 1024;
+
+    private Context context;
+
+    private File largeFile;
+
+    @Before
+    public void setUp() {
+        context = RuntimeEnvironment.application;
+    }
+
+    @After
+    public void tearDown() {
+        if (largeFile != null) {
+            largeFile.delete();
+        }
+    }
+
+    @Test
+    public void opensLargeFileWithoutReadingIt() throws IOException {
+        largeFile = File.createTempFile("large", ".pdf", context.getCacheDir());
+        RandomAccessFile file = new RandomAccessFile(largeFile, "rw");
+        try {
+            file.setLength(LARGE_DOCUMENT_SIZE);
+        } finally {
+            file.close();
+        }
+
+        // classes are loaded before measuring
+        new FileSource(largeFile).openInput(context).close();
+
+        long allocatedBefore = getAllocatedBytes();
+        DocumentInput input = new FileSource(largeFile).openInput(context);
+        long allocated = getAllocatedBytes() - allocatedBefore;
+        try {
+            assertNull(input.getBytes());
+            assertEquals(LARGE_DOCUMENT_SIZE, getSize(input));
+            assertTrue("Allocated " + allocated + " bytes", allocated < MAX_ALLOCATED_BYTES);
+        } finally {
+            input.close();
+        }
+    }
+
+    @Test
+    public void spoolsLargeStreamInChunks() throws IOException {
+        new InputStreamSource(new GeneratedStream(1024)).openInput(context).close();
+        GeneratedStream stream = new GeneratedStream(LARGE_DOCUMENT_SIZE);
+        int filesBefore = countCachedFiles();
+
+        long allocatedBefore = getAllocatedBytes();
+        DocumentInput input = new InputStreamSource(stream).openInput(context);
+        long allocated = getAllocatedBytes() - allocatedBefore;
+        try {
+            assertNull(input.getBytes());
+            assertNotNull(input.getFileDescriptor());
+            assertEquals(LARGE_DOCUMENT_SIZE, getSize(input));
+            assertTrue("Allocated " + allocated + " bytes", allocated < MAX_ALLOCATED_BYTES);
+            assertTrue(stream.closed);
+            // the spooled file is deleted right away, it stays readable until the input is closed
+            assertEquals(filesBefore, countCachedFiles());
+        } finally {
+            input.close();
+        }
+    }
+
+    private int countCachedFiles() {
+        String[] files = context.getCacheDir().list();
+        return files != null ? files.length : 0;
+    }
+
+    /**
+     * @return size of the file the input reads from
+     */
+    private static long getSize(DocumentInput input) throws IOException {
+        // not closed, it would close the descriptor of the input
+        FileInputStream stream = new FileInputStream(input.getFileDescriptor().getFileDescriptor());
+        return stream.getChannel().size();
+    }
+
+    /**
+     * @return bytes allocated by the current thread so far
+     */
+    private static long getAllocatedBytes() {
+        com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        return threadBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    /**
+     * Stream of given length which isn't a file, generated without holding its content
+     */
+    private static class GeneratedStream extends InputStream {
+
+        private final long length;
+
+        private long position = 0;
+
+        boolean closed = false;
+
+        GeneratedStream(long length) {
+            this.length = length;
+        }
+
+        @Override
+        public int read() {
+            if (position >= length) {
+                return -1;
+            }
+            return (int) (position++ & 0xFF);
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int count) {
+            if (position >= length) {
+                return -1;
+            }
+            int read = (int) Math.min(count, length - position);
+            for (int i = 0; i < read; i++) {
+                buffer[offset + i] = (byte) (position + i);
+            }
+            position += read;
+            return read;
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+}